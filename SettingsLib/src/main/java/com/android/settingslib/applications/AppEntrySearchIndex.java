@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settingslib.applications;
+
+import android.util.LongSparseArray;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Trigram index over the lower-cased labels of {@link AppEntry}s, used for search-as-you-type.
+ *
+ * <p>A query matches an entry when the entry's label contains it, ignoring case. Each trigram
+ * maps to the ids of the entries whose label contains it, in ascending order, so a query of at
+ * least three characters only visits the entries found in the posting lists of all its trigrams.
+ * Queries are run by a {@link Searcher}, which is created once per list of entries.
+ */
+public class AppEntrySearchIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    // Trigram => ids of the entries whose label contains it.
+    private final LongSparseArray<Posting> mPostings = new LongSparseArray<>();
+    // Entry id => the entry, its indexed label and the lower-case form of that label.
+    private final LongSparseArray<IndexedLabel> mLabels = new LongSparseArray<>();
+
+    /** Indexes {@code entry}, or re-indexes it if its label changed. */
+    synchronized void update(AppEntry entry) {
+        final String label = entry.label;
+        final IndexedLabel indexed = mLabels.get(entry.id);
+        if (indexed != null && indexed.mEntry == entry && indexed.mLabel == label) {
+            return;
+        }
+        remove(entry);
+        if (label == null) {
+            return;
+        }
+        final IndexedLabel newLabel = new IndexedLabel(entry, label);
+        mLabels.put(entry.id, newLabel);
+        final String lowerLabel = newLabel.mLowerLabel;
+        for (int i = 0; i + GRAM_LENGTH <= lowerLabel.length(); i++) {
+            final long gram = pack(lowerLabel, i);
+            Posting posting = mPostings.get(gram);
+            if (posting == null) {
+                posting = new Posting();
+                mPostings.put(gram, posting);
+            }
+            posting.add(entry.id);
+        }
+    }
+
+    synchronized void remove(AppEntry entry) {
+        final IndexedLabel indexed = mLabels.get(entry.id);
+        if (indexed == null) {
+            return;
+        }
+        mLabels.remove(entry.id);
+        final String lowerLabel = indexed.mLowerLabel;
+        for (int i = 0; i + GRAM_LENGTH <= lowerLabel.length(); i++) {
+            final long gram = pack(lowerLabel, i);
+            final Posting posting = mPostings.get(gram);
+            if (posting != null && posting.remove(entry.id) && posting.mSize == 0) {
+                mPostings.remove(gram);
+            }
+        }
+    }
+
+    synchronized void clear() {
+        mPostings.clear();
+        mLabels.clear();
+    }
+
+    /**
+     * Returns a searcher over {@code entries}, which must not change afterwards. Entries whose
+     * label changed since they were indexed are indexed again first.
+     */
+    public synchronized Searcher newSearcher(List<AppEntry> entries) {
+        final int size = entries.size();
+        final long[] ids = new long[size];
+        for (int i = 0; i < size; i++) {
+            final AppEntry entry = entries.get(i);
+            update(entry);
+            ids[i] = entry.id;
+        }
+        Arrays.sort(ids);
+        final int[] positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            positions[Arrays.binarySearch(ids, entries.get(i).id)] = i;
+        }
+        return new Searcher(entries, ids, positions);
+    }
+
+    /**
+     * Filters one list of entries. Not thread safe: a searcher is meant to be used by one filter
+     * thread, while the index itself is updated from others.
+     */
+    public class Searcher {
+        private final List<AppEntry> mEntries;
+        // Ids of mEntries in ascending order, and the position in mEntries of each of them.
+        private final long[] mIds;
+        private final int[] mPositions;
+
+        private String mQuery;
+        private char[] mLowerQuery = new char[16];
+        private int mQueryLength;
+        private Posting[] mQueryPostings = new Posting[16];
+        private int[] mMatches = new int[16];
+
+        Searcher(List<AppEntry> entries, long[] ids, int[] positions) {
+            mEntries = entries;
+            mIds = ids;
+            mPositions = positions;
+        }
+
+        /**
+         * Appends to {@code out}, in their order in the list of this searcher, the entries whose
+         * label contains {@code query} ignoring case.
+         */
+        public void filter(String query, List<AppEntry> out) {
+            setQuery(query);
+            synchronized (AppEntrySearchIndex.this) {
+                if (mQueryLength < GRAM_LENGTH) {
+                    filterAll(out);
+                } else {
+                    filterCandidates(out);
+                }
+            }
+        }
+
+        private void setQuery(String query) {
+            if (query.equals(mQuery)) {
+                return;
+            }
+            mQuery = query;
+            mQueryLength = query.length();
+            if (mLowerQuery.length < mQueryLength) {
+                mLowerQuery = new char[mQueryLength];
+            }
+            for (int i = 0; i < mQueryLength; i++) {
+                mLowerQuery[i] = Character.toLowerCase(query.charAt(i));
+            }
+        }
+
+        /** Queries shorter than a trigram can match any entry. */
+        private void filterAll(List<AppEntry> out) {
+            final int size = mEntries.size();
+            for (int i = 0; i < size; i++) {
+                final AppEntry entry = mEntries.get(i);
+                if (matches(mLabels.get(entry.id), entry)) {
+                    out.add(entry);
+                }
+            }
+        }
+
+        private void filterCandidates(List<AppEntry> out) {
+            final int gramCount = mQueryLength - GRAM_LENGTH + 1;
+            if (mQueryPostings.length < gramCount) {
+                mQueryPostings = new Posting[gramCount];
+            }
+            Posting smallest = null;
+            for (int i = 0; i < gramCount; i++) {
+                final Posting posting = mPostings.get(pack(mLowerQuery, i));
+                if (posting == null) {
+                    // Some trigram of the query occurs in no label.
+                    return;
+                }
+                mQueryPostings[i] = posting;
+                if (smallest == null || posting.mSize < smallest.mSize) {
+                    smallest = posting;
+                }
+            }
+
+            int matchCount = 0;
+            for (int i = 0; i < smallest.mSize; i++) {
+                final long id = smallest.mIds[i];
+                if (!inAllPostings(id, gramCount)) {
+                    continue;
+                }
+                final int index = Arrays.binarySearch(mIds, id);
+                if (index < 0) {
+                    // Indexed, but not part of this list.
+                    continue;
+                }
+                final AppEntry entry = mEntries.get(mPositions[index]);
+                if (!matches(mLabels.get(id), entry)) {
+                    continue;
+                }
+                if (matchCount == mMatches.length) {
+                    mMatches = Arrays.copyOf(mMatches, matchCount * 2);
+                }
+                mMatches[matchCount++] = mPositions[index];
+            }
+            Arrays.sort(mMatches, 0, matchCount);
+            for (int i = 0; i < matchCount; i++) {
+                out.add(mEntries.get(mMatches[i]));
+            }
+            Arrays.fill(mQueryPostings, 0, gramCount, null);
+        }
+
+        private boolean inAllPostings(long id, int gramCount) {
+            for (int i = 0; i < gramCount; i++) {
+                if (!mQueryPostings[i].contains(id)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matches(IndexedLabel indexed, AppEntry entry) {
+            final String label = entry.label;
+            if (label == null) {
+                return false;
+            }
+            if (indexed != null && indexed.mEntry == entry && indexed.mLabel == label) {
+                return contains(indexed.mLowerLabel, mLowerQuery, mQueryLength);
+            }
+            // The label was replaced after this list was indexed.
+            return contains(toLowerCase(label), mLowerQuery, mQueryLength);
+        }
+    }
+
+    private static boolean contains(String text, char[] pattern, int length) {
+        for (int start = 0; start + length <= text.length(); start++) {
+            int i = 0;
+            while (i < length && text.charAt(start + i) == pattern[i]) {
+                i++;
+            }
+            if (i == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Lower-cases per char, the same way as queries, so that both agree on every label.
+    private static String toLowerCase(String s) {
+        final char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static long pack(String s, int start) {
+        return ((long) s.charAt(start) << 32)
+                | ((long) s.charAt(start + 1) << 16)
+                | s.charAt(start + 2);
+    }
+
+    private static long pack(char[] s, int start) {
+        return ((long) s[start] << 32)
+                | ((long) s[start + 1] << 16)
+                | s[start + 2];
+    }
+
+    /** Sorted set of entry ids. */
+    private static class Posting {
+        long[] mIds = new long[4];
+        int mSize;
+
+        void add(long id) {
+            int index = Arrays.binarySearch(mIds, 0, mSize, id);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (mSize == mIds.length) {
+                mIds = Arrays.copyOf(mIds, mSize * 2);
+            }
+            System.arraycopy(mIds, index, mIds, index + 1, mSize - index);
+            mIds[index] = id;
+            mSize++;
+        }
+
+        boolean remove(long id) {
+            final int index = Arrays.binarySearch(mIds, 0, mSize, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(mIds, index + 1, mIds, index, mSize - index - 1);
+            mSize--;
+            return true;
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(mIds, 0, mSize, id) >= 0;
+        }
+    }
+
+    private static class IndexedLabel {
+        final AppEntry mEntry;
+        final String mLabel;
+        final String mLowerLabel;
+
+        IndexedLabel(AppEntry entry, String label) {
+            mEntry = entry;
+            mLabel = label;
+            mLowerLabel = toLowerCase(label);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settingslib.applications;
+
+import android.content.pm.ApplicationInfo;
+import android.os.UserHandle;
+import android.util.AtomicFile;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Persists the expensive parts of {@link AppEntry} (labels and sizes) so that
+ * {@link ApplicationsState} can populate its entries on cold start without reloading them.
+ *
+ * <p>Records are keyed by user and package and are only reused while the APK path and its
+ * modification time are unchanged. Launcher and home flags are not persisted, since enabling or
+ * disabling a component changes them without touching the APK. The whole snapshot is dropped
+ * when the format version or the locale list differs from the one it was written with.
+ */
+class AppEntrySnapshotCache {
+    private static final String TAG = "AppEntrySnapshotCache";
+
+    private static final int MAGIC = 0x41505053; // "APPS"
+    @VisibleForTesting
+    static final int VERSION = 2;
+
+    private final AtomicFile mFile;
+
+    AppEntrySnapshotCache(File file) {
+        mFile = new AtomicFile(file);
+    }
+
+    /**
+     * Reads the snapshot written for {@code locales}.
+     *
+     * @return Map: userid => (Map: package name => Record); empty if there is no usable snapshot
+     */
+    SparseArray<HashMap<String, Record>> read(String locales) {
+        final SparseArray<HashMap<String, Record>> records = new SparseArray<>();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(mFile.openRead()))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || !locales.equals(in.readUTF())) {
+                return records;
+            }
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                final Record record = Record.readFrom(in);
+                HashMap<String, Record> userRecords = records.get(record.userId);
+                if (userRecords == null) {
+                    userRecords = new HashMap<>();
+                    records.put(record.userId, userRecords);
+                }
+                userRecords.put(record.packageName, record);
+            }
+        } catch (FileNotFoundException e) {
+            // No snapshot yet.
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable snapshot", e);
+            records.clear();
+            mFile.delete();
+        }
+        return records;
+    }
+
+    /** Replaces the snapshot with {@code records}. */
+    void write(String locales, List<Record> records) {
+        FileOutputStream fos = null;
+        try {
+            fos = mFile.startWrite();
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(locales);
+            out.writeInt(records.size());
+            for (Record record : records) {
+                record.writeTo(out);
+            }
+            out.flush();
+            mFile.finishWrite(fos);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write snapshot", e);
+            if (fos != null) {
+                mFile.failWrite(fos);
+            }
+        }
+    }
+
+    /** The persisted state of a single {@link AppEntry}. */
+    static class Record {
+        final int userId;
+        final String packageName;
+        final String sourceDir;
+        final long apkLastModified;
+        final String label;
+        final String normalizedLabel;
+        final long size;
+        final long internalSize;
+        final long externalSize;
+        final long codeSize;
+        final long dataSize;
+        final long cacheSize;
+        final long externalCodeSize;
+        final long externalDataSize;
+        final long externalCacheSize;
+
+        private Record(int userId, String packageName, String sourceDir, long apkLastModified,
+                String label, String normalizedLabel, long size, long internalSize,
+                long externalSize, long codeSize, long dataSize, long cacheSize,
+                long externalCodeSize, long externalDataSize, long externalCacheSize) {
+            this.userId = userId;
+            this.packageName = packageName;
+            this.sourceDir = sourceDir;
+            this.apkLastModified = apkLastModified;
+            this.label = label;
+            this.normalizedLabel = normalizedLabel;
+            this.size = size;
+            this.internalSize = internalSize;
+            this.externalSize = externalSize;
+            this.codeSize = codeSize;
+            this.dataSize = dataSize;
+            this.cacheSize = cacheSize;
+            this.externalCodeSize = externalCodeSize;
+            this.externalDataSize = externalDataSize;
+            this.externalCacheSize = externalCacheSize;
+        }
+
+        /**
+         * Captures {@code entry}, or returns null if its label has not been loaded from a mounted
+         * APK. Must be called with the entry's lock held.
+         */
+        static Record fromLocked(AppEntry entry) {
+            if (entry.label == null || !entry.mounted || entry.info.sourceDir == null) {
+                return null;
+            }
+            final long apkLastModified = entry.apkFile.lastModified();
+            if (apkLastModified == 0) {
+                return null;
+            }
+            return new Record(UserHandle.getUserId(entry.info.uid), entry.info.packageName,
+                    entry.info.sourceDir, apkLastModified, entry.label,
+                    entry.getNormalizedLabel(), entry.size, entry.internalSize,
+                    entry.externalSize, entry.codeSize, entry.dataSize, entry.cacheSize,
+                    entry.externalCodeSize, entry.externalDataSize, entry.externalCacheSize);
+        }
+
+        /** Whether this record still describes the package installed at {@code apkFile}. */
+        boolean matches(ApplicationInfo info, File apkFile) {
+            return sourceDir.equals(info.sourceDir) && apkLastModified == apkFile.lastModified();
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(userId);
+            out.writeUTF(packageName);
+            out.writeUTF(sourceDir);
+            out.writeLong(apkLastModified);
+            out.writeUTF(label);
+            out.writeUTF(normalizedLabel);
+            out.writeLong(size);
+            out.writeLong(internalSize);
+            out.writeLong(externalSize);
+            out.writeLong(codeSize);
+            out.writeLong(dataSize);
+            out.writeLong(cacheSize);
+            out.writeLong(externalCodeSize);
+            out.writeLong(externalDataSize);
+            out.writeLong(externalCacheSize);
+        }
+
+        private static Record readFrom(DataInputStream in) throws IOException {
+            return new Record(in.readInt(), in.readUTF(), in.readUTF(), in.readLong(),
+                    in.readUTF(), in.readUTF(), in.readLong(), in.readLong(), in.readLong(),
+                    in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readLong(),
+                    in.readLong());
+        }
+    }
+}
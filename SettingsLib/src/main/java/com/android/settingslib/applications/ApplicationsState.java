@@ -67,17 +67,26 @@ import java.io.IOException;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.ref.WeakReference;
+import java.text.CollationKey;
 import java.text.Collator;
 import java.text.Normalizer;
 import java.text.Normalizer.Form;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 /**
@@ -92,6 +101,15 @@ public class ApplicationsState {
 
     private static final boolean DEBUG = false;
     private static final boolean DEBUG_LOCKING = false;
+    // Below this many changed entries a session is always patched incrementally.
+    private static final int MIN_INCREMENTAL_DIRTY_ENTRIES = 16;
+    // Icons and sizes are loaded by this many workers; idle workers exit after the keep-alive.
+    private static final int MAX_PARALLEL_LOADS =
+            Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final long LOADER_KEEP_ALIVE_SECONDS = 10;
+    // A size query that has not completed after this long may be issued again.
+    private static final long SIZE_LOAD_RETRY_MILLIS = 20 * 1000;
+    private static final String SNAPSHOT_FILE_NAME = "app_entries_snapshot";
     private static final Object sLock = new Object();
     private static final Pattern REMOVE_DIACRITICALS_PATTERN
             = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
@@ -137,18 +155,27 @@ public class ApplicationsState {
     final ArrayList<AppEntry> mAppEntries = new ArrayList<>();
     List<ApplicationInfo> mApplications = new ArrayList<>();
     long mCurId = 1;
-    UUID mCurComputingSizeUuid;
-    String mCurComputingSizePkg;
-    int mCurComputingSizeUserId;
+    boolean mLoadingIcons;
+    boolean mLoadingSizes;
+    // Entries currently on screen; loaded ahead of everything else.  Replaced, never mutated.
+    volatile Set<AppEntry> mVisibleEntries = Collections.emptySet();
     boolean mSessionsChanged;
     // Maps all installed modules on the system to whether they're hidden or not.
     final HashMap<String, Boolean> mSystemModules = new HashMap<>();
+    final AppEntrySnapshotCache mSnapshotCache;
+    final AppEntrySearchIndex mSearchIndex = new AppEntrySearchIndex();
+    // Persisted entries not yet claimed by getEntryLocked.  Synchronize on mEntriesMap.
+    SparseArray<HashMap<String, AppEntrySnapshotCache.Record>> mSnapshot = new SparseArray<>();
+    // Whether a persisted label or size changed, or an entry was added or removed, since the
+    // snapshot was last written.  Synchronize on mEntriesMap.
+    boolean mSnapshotDirty;
 
     // Temporary for dispatching session callbacks.  Only touched by main thread.
     final ArrayList<WeakReference<Session>> mActiveSessions = new ArrayList<>();
 
     final HandlerThread mThread;
     final BackgroundHandler mBackgroundHandler;
+    final ThreadPoolExecutor mLoaderExecutor;
     final MainHandler mMainHandler = new MainHandler(Looper.getMainLooper());
 
     /** Requests that the home app is loaded. */
@@ -204,6 +231,17 @@ public class ApplicationsState {
         mThread = new HandlerThread("ApplicationsState.Loader");
         mThread.start();
         mBackgroundHandler = new BackgroundHandler(mThread.getLooper());
+        mLoaderExecutor = new ThreadPoolExecutor(MAX_PARALLEL_LOADS, MAX_PARALLEL_LOADS,
+                LOADER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "ApplicationsState.Worker"));
+        mLoaderExecutor.allowCoreThreadTimeOut(true);
+        mSnapshotCache = new AppEntrySnapshotCache(
+                new File(mContext.getCacheDir(), SNAPSHOT_FILE_NAME));
+        // Queued ahead of the first MSG_LOAD_ENTRIES, so new entries can be seeded from it.
+        mBackgroundHandler.sendEmptyMessage(BackgroundHandler.MSG_LOAD_SNAPSHOT);
 
         // Only the owner can see all apps.
         mAdminRetrieveFlags = PackageManager.MATCH_ANY_USER |
@@ -284,6 +322,9 @@ public class ApplicationsState {
             }
         }
 
+        // Every known entry gets a fresh ApplicationInfo below, so cached session views can no
+        // longer be patched incrementally.
+        invalidateRebuildCachesLocked();
         if (mInterestingConfigChanges.applyNewConfig(mContext.getResources())) {
             // If an interesting part of the configuration has changed, we
             // should completely reload the app entries.
@@ -327,7 +368,6 @@ public class ApplicationsState {
             // some apps have been uninstalled.
             clearEntries();
         }
-        mCurComputingSizePkg = null;
         if (!mBackgroundHandler.hasMessages(BackgroundHandler.MSG_LOAD_ENTRIES)) {
             mBackgroundHandler.sendEmptyMessage(BackgroundHandler.MSG_LOAD_ENTRIES);
         }
@@ -415,6 +455,48 @@ public class ApplicationsState {
             mEntriesMap.valueAt(i).clear();
         }
         mAppEntries.clear();
+        mSearchIndex.clear();
+        invalidateRebuildCachesLocked();
+    }
+
+    /**
+     * Records that {@code entry} was added, removed or changed in a way that may affect its
+     * filtering or ordering, so sessions can patch their last result instead of rebuilding it.
+     * Must be called with {@link #mEntriesMap} held.
+     */
+    void markEntryDirtyLocked(AppEntry entry) {
+        if (isLiveEntryLocked(entry)) {
+            mSearchIndex.update(entry);
+        } else {
+            mSearchIndex.remove(entry);
+        }
+        for (int i = 0; i < mSessions.size(); i++) {
+            mSessions.get(i).markEntryDirtyLocked(entry);
+        }
+    }
+
+    boolean isLiveEntryLocked(AppEntry entry) {
+        final HashMap<String, AppEntry> userMap =
+                mEntriesMap.get(UserHandle.getUserId(entry.info.uid));
+        return userMap != null && userMap.get(entry.info.packageName) == entry;
+    }
+
+    /**
+     * Returns the label index of all known entries, kept up to date as entries are added,
+     * removed or relabeled.
+     */
+    public AppEntrySearchIndex getSearchIndex() {
+        return mSearchIndex;
+    }
+
+    /**
+     * Forces the next rebuild of every session to start from scratch. Must be called with
+     * {@link #mEntriesMap} held.
+     */
+    void invalidateRebuildCachesLocked() {
+        for (int i = 0; i < mSessions.size(); i++) {
+            mSessions.get(i).invalidateRebuildCacheLocked();
+        }
     }
 
     public boolean haveDisabledApps() {
@@ -515,6 +597,15 @@ public class ApplicationsState {
         }
     }
 
+    /**
+     * Hints which entries are currently displayed, so that their icons and sizes are loaded
+     * before those of off-screen entries.
+     */
+    public void setVisibleEntries(Collection<AppEntry> entries) {
+        mVisibleEntries = entries.isEmpty()
+                ? Collections.emptySet() : Collections.unmodifiableSet(new HashSet<>(entries));
+    }
+
     public void requestSize(String packageName, int userId) {
         if (DEBUG_LOCKING) Log.v(TAG, "requestSize about to acquire lock...");
         synchronized (mEntriesMap) {
@@ -635,6 +726,8 @@ public class ApplicationsState {
                 if (entry != null) {
                     mEntriesMap.get(userId).remove(pkgName);
                     mAppEntries.remove(entry);
+                    mSnapshotDirty = true;
+                    markEntryDirtyLocked(entry);
                 }
                 ApplicationInfo info = mApplications.get(idx);
                 mApplications.remove(idx);
@@ -695,8 +788,10 @@ public class ApplicationsState {
                 for (AppEntry appEntry : userMap.values()) {
                     mAppEntries.remove(appEntry);
                     mApplications.remove(appEntry.info);
+                    mSearchIndex.remove(appEntry);
                 }
                 mEntriesMap.remove(userId);
+                invalidateRebuildCachesLocked();
                 if (!mMainHandler.hasMessages(MainHandler.MSG_PACKAGE_LIST_CHANGED)) {
                     mMainHandler.sendEmptyMessage(MainHandler.MSG_PACKAGE_LIST_CHANGED);
                 }
@@ -720,15 +815,31 @@ public class ApplicationsState {
             if (DEBUG) {
                 Log.i(TAG, "Creating AppEntry for " + info.packageName);
             }
-            entry = new AppEntry(mContext, info, mCurId++);
+            entry = new AppEntry(mContext, info, mCurId++,
+                    takeSnapshotRecordLocked(userId, info.packageName));
             mEntriesMap.get(userId).put(info.packageName, entry);
             mAppEntries.add(entry);
+            if (!entry.labelFromSnapshot) {
+                mSnapshotDirty = true;
+            }
+            markEntryDirtyLocked(entry);
         } else if (entry.info != info) {
             entry.info = info;
+            mSnapshotDirty = true;
+            markEntryDirtyLocked(entry);
         }
         return entry;
     }
 
+    private AppEntrySnapshotCache.Record takeSnapshotRecordLocked(int userId, String pkg) {
+        final HashMap<String, AppEntrySnapshotCache.Record> userRecords = mSnapshot.get(userId);
+        return userRecords != null ? userRecords.remove(pkg) : null;
+    }
+
+    private String getSnapshotLocales() {
+        return mContext.getResources().getConfiguration().getLocales().toLanguageTags();
+    }
+
     // --------------------------------------------------------------
 
     private long getTotalInternalSize(PackageStats ps) {
@@ -792,8 +903,18 @@ public class ApplicationsState {
         Comparator<AppEntry> mRebuildComparator;
         ArrayList<AppEntry> mRebuildResult;
         ArrayList<AppEntry> mLastAppList;
+        ChangeSet mLastChangeSet;
         boolean mRebuildForeground;
 
+        // Incremental rebuild state.  Synchronized on mEntriesMap; the cached list is only
+        // replaced, never mutated, once published.
+        boolean mIncrementalRebuild;
+        boolean mRebuildCacheValid;
+        AppFilter mCachedFilter;
+        Comparator<AppEntry> mCachedComparator;
+        ArrayList<AppEntry> mCachedAppList;
+        final HashSet<AppEntry> mDirtyEntries = new HashSet<>();
+
         private final boolean mHasLifecycle;
         @SessionFlags
         private int mFlags = DEFAULT_SESSION_FLAGS;
@@ -817,6 +938,48 @@ public class ApplicationsState {
             mFlags = flags;
         }
 
+        /**
+         * Enables incremental rebuilds for this session. When the same filter and comparator are
+         * passed to consecutive {@link #rebuild} calls, only the entries that changed in between
+         * are re-filtered and binary-inserted into the previous result, and the outcome is
+         * delivered through {@link Callbacks#onRebuildDelta(ChangeSet)}.
+         *
+         * <p>Callers whose filter or comparator depends on state outside of {@link AppEntry}
+         * must call {@link #invalidateRebuildCache()} whenever that state changes.
+         */
+        public void setIncrementalRebuildEnabled(boolean enabled) {
+            synchronized (mEntriesMap) {
+                mIncrementalRebuild = enabled;
+                invalidateRebuildCacheLocked();
+            }
+        }
+
+        /**
+         * Forces the next {@link #rebuild} to filter and sort all entries from scratch.
+         */
+        public void invalidateRebuildCache() {
+            synchronized (mEntriesMap) {
+                invalidateRebuildCacheLocked();
+            }
+        }
+
+        void invalidateRebuildCacheLocked() {
+            mRebuildCacheValid = false;
+            mDirtyEntries.clear();
+        }
+
+        void markEntryDirtyLocked(AppEntry entry) {
+            if (!mIncrementalRebuild || !mRebuildCacheValid) {
+                return;
+            }
+            mDirtyEntries.add(entry);
+            // Past this point a full sort is cheaper than the individual inserts.
+            final int cachedCount = mCachedAppList != null ? mCachedAppList.size() : 0;
+            if (mDirtyEntries.size() > Math.max(MIN_INCREMENTAL_DIRTY_ENTRIES, cachedCount / 4)) {
+                invalidateRebuildCacheLocked();
+            }
+        }
+
         @OnLifecycleEvent(Lifecycle.Event.ON_RESUME)
         public void onResume() {
             if (DEBUG_LOCKING) Log.v(TAG, "resume about to acquire lock...");
@@ -906,10 +1069,67 @@ public class ApplicationsState {
             }
 
             final List<AppEntry> apps;
+            final ArrayList<AppEntry> dirtyEntries;
             synchronized (mEntriesMap) {
-                apps = new ArrayList<>(mAppEntries);
+                if (mIncrementalRebuild && mRebuildCacheValid && comparator != null
+                        && comparator == mCachedComparator
+                        && Objects.equals(filter, mCachedFilter)) {
+                    apps = null;
+                    dirtyEntries = new ArrayList<>(mDirtyEntries);
+                } else {
+                    apps = new ArrayList<>(mAppEntries);
+                    dirtyEntries = null;
+                }
+                // Anything that changes from now on is picked up by the next rebuild.
+                mDirtyEntries.clear();
+                mRebuildCacheValid = mIncrementalRebuild;
+                mCachedFilter = filter;
+                mCachedComparator = comparator;
             }
 
+            final ArrayList<AppEntry> filteredApps;
+            final ChangeSet changeSet;
+            if (dirtyEntries != null) {
+                if (DEBUG) {
+                    Log.i(TAG, "Rebuilding incrementally, " + dirtyEntries.size() + " changed");
+                }
+                changeSet = applyDirtyEntries(dirtyEntries, filter, comparator);
+                filteredApps = changeSet.getApps();
+            } else {
+                filteredApps = filterAndSort(apps, filter, comparator);
+                changeSet = mIncrementalRebuild
+                        ? new ChangeSet(filteredApps, true /* fullRebuild */) : null;
+            }
+            if (mIncrementalRebuild) {
+                // Keep a private copy; the published list belongs to the callbacks.
+                final ArrayList<AppEntry> cachedAppList = new ArrayList<>(filteredApps);
+                synchronized (mEntriesMap) {
+                    mCachedAppList = cachedAppList;
+                }
+            }
+
+            synchronized (mRebuildSync) {
+                if (!mRebuildRequested) {
+                    mLastAppList = filteredApps;
+                    mLastChangeSet = changeSet;
+                    if (!mRebuildAsync) {
+                        mRebuildResult = filteredApps;
+                        mRebuildSync.notifyAll();
+                    } else {
+                        if (!mMainHandler.hasMessages(MainHandler.MSG_REBUILD_COMPLETE, this)) {
+                            Message msg = mMainHandler.obtainMessage(
+                                    MainHandler.MSG_REBUILD_COMPLETE, this);
+                            mMainHandler.sendMessage(msg);
+                        }
+                    }
+                }
+            }
+
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        }
+
+        private ArrayList<AppEntry> filterAndSort(List<AppEntry> apps, AppFilter filter,
+                Comparator<AppEntry> comparator) {
             ArrayList<AppEntry> filteredApps = new ArrayList<>();
             if (DEBUG) {
                 Log.i(TAG, "Rebuilding...");
@@ -942,24 +1162,50 @@ public class ApplicationsState {
                     Collections.sort(filteredApps, comparator);
                 }
             }
+            return filteredApps;
+        }
 
-            synchronized (mRebuildSync) {
-                if (!mRebuildRequested) {
-                    mLastAppList = filteredApps;
-                    if (!mRebuildAsync) {
-                        mRebuildResult = filteredApps;
-                        mRebuildSync.notifyAll();
-                    } else {
-                        if (!mMainHandler.hasMessages(MainHandler.MSG_REBUILD_COMPLETE, this)) {
-                            Message msg = mMainHandler.obtainMessage(
-                                    MainHandler.MSG_REBUILD_COMPLETE, this);
-                            mMainHandler.sendMessage(msg);
-                        }
+        /**
+         * Patches the cached result with the entries that changed since it was computed. The
+         * untouched entries keep their relative order, so every changed entry that still passes
+         * the filter can be placed with a binary search.
+         */
+        private ChangeSet applyDirtyEntries(List<AppEntry> dirtyEntries, AppFilter filter,
+                Comparator<AppEntry> comparator) {
+            final HashSet<AppEntry> dirtySet = new HashSet<>(dirtyEntries);
+            final HashSet<AppEntry> previouslyListed = new HashSet<>();
+            final ArrayList<AppEntry> apps = new ArrayList<>(mCachedAppList.size());
+            for (AppEntry entry : mCachedAppList) {
+                if (dirtySet.contains(entry)) {
+                    previouslyListed.add(entry);
+                } else {
+                    apps.add(entry);
+                }
+            }
+
+            final ChangeSet changeSet = new ChangeSet(apps, false /* fullRebuild */);
+            for (AppEntry entry : dirtyEntries) {
+                boolean listed = isLiveEntry(entry) && (filter == null || filter.filterApp(entry));
+                if (listed) {
+                    synchronized (mEntriesMap) {
+                        entry.ensureLabel(mContext);
+                        int index = Collections.binarySearch(apps, entry, comparator);
+                        apps.add(index < 0 ? -index - 1 : index, entry);
                     }
                 }
+                if (previouslyListed.contains(entry)) {
+                    (listed ? changeSet.mMoved : changeSet.mRemoved).add(entry);
+                } else if (listed) {
+                    changeSet.mInserted.add(entry);
+                }
             }
+            return changeSet;
+        }
 
-            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        private boolean isLiveEntry(AppEntry entry) {
+            synchronized (mEntriesMap) {
+                return isLiveEntryLocked(entry);
+            }
         }
 
         @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
@@ -997,7 +1243,11 @@ public class ApplicationsState {
                     for (WeakReference<Session> sessionRef : mActiveSessions) {
                         final Session session = sessionRef.get();
                         if (session != null && session == s) {
-                            s.mCallbacks.onRebuildComplete(s.mLastAppList);
+                            if (s.mLastChangeSet != null) {
+                                s.mCallbacks.onRebuildDelta(s.mLastChangeSet);
+                            } else {
+                                s.mCallbacks.onRebuildComplete(s.mLastAppList);
+                            }
                         }
                     }
                 } break;
@@ -1071,6 +1321,8 @@ public class ApplicationsState {
         static final int MSG_LOAD_LEANBACK_LAUNCHER = 5;
         static final int MSG_LOAD_ICONS = 6;
         static final int MSG_LOAD_SIZES = 7;
+        static final int MSG_LOAD_SNAPSHOT = 8;
+        static final int MSG_SAVE_SNAPSHOT = 9;
 
         boolean mRunning;
 
@@ -1099,6 +1351,41 @@ public class ApplicationsState {
             switch (msg.what) {
                 case MSG_REBUILD_LIST: {
                 } break;
+                case MSG_LOAD_SNAPSHOT: {
+                    final SparseArray<HashMap<String, AppEntrySnapshotCache.Record>> snapshot =
+                            mSnapshotCache.read(getSnapshotLocales());
+                    synchronized (mEntriesMap) {
+                        mSnapshot = snapshot;
+                    }
+                } break;
+                case MSG_SAVE_SNAPSHOT: {
+                    // Labels restored from the snapshot are verified once before they are
+                    // persisted again; sizes were already refreshed by MSG_LOAD_SIZES.  The
+                    // snapshot is only rewritten if any of that changed it.
+                    final ArrayList<AppEntry> restored = new ArrayList<>();
+                    synchronized (mEntriesMap) {
+                        for (int i = 0; i < mSnapshot.size(); i++) {
+                            if (!mSnapshot.valueAt(i).isEmpty()) {
+                                // Records of packages that are gone.
+                                mSnapshotDirty = true;
+                                break;
+                            }
+                        }
+                        mSnapshot = new SparseArray<>();
+                        for (int i = 0; i < mAppEntries.size(); i++) {
+                            final AppEntry entry = mAppEntries.get(i);
+                            if (entry.labelFromSnapshot) {
+                                restored.add(entry);
+                            }
+                        }
+                    }
+                    if (restored.isEmpty()) {
+                        saveSnapshot();
+                    } else {
+                        new LoadBatch(restored, this::verifySnapshotLabel,
+                                this::saveSnapshot).start();
+                    }
+                } break;
                 case MSG_LOAD_ENTRIES: {
                     int numDone = 0;
                     synchronized (mEntriesMap) {
@@ -1129,6 +1416,8 @@ public class ApplicationsState {
                                         ApplicationInfo.FLAG_INSTALLED)) {
                                     mEntriesMap.get(0).remove(info.packageName);
                                     mAppEntries.remove(entry);
+                                    mSnapshotDirty = true;
+                                    markEntryDirtyLocked(entry);
                                 }
                             }
                         }
@@ -1157,8 +1446,9 @@ public class ApplicationsState {
                                 for (ResolveInfo activity : homeActivities) {
                                     String packageName = activity.activityInfo.packageName;
                                     AppEntry entry = userEntries.get(packageName);
-                                    if (entry != null) {
+                                    if (entry != null && !entry.isHomeApp) {
                                         entry.isHomeApp = true;
+                                        markEntryDirtyLocked(entry);
                                     }
                                 }
                                 if (DEBUG_LOCKING) Log.v(TAG, "MSG_LOAD_HOME_APP releasing lock");
@@ -1201,9 +1491,16 @@ public class ApplicationsState {
                                     String packageName = resolveInfo.activityInfo.packageName;
                                     AppEntry entry = userEntries.get(packageName);
                                     if (entry != null) {
-                                        entry.hasLauncherEntry = true;
-                                        entry.launcherEntryEnabled |=
-                                                resolveInfo.activityInfo.enabled;
+                                        final boolean launcherEntryEnabled =
+                                                entry.launcherEntryEnabled
+                                                        | resolveInfo.activityInfo.enabled;
+                                        if (!entry.hasLauncherEntry
+                                                || entry.launcherEntryEnabled
+                                                != launcherEntryEnabled) {
+                                            entry.hasLauncherEntry = true;
+                                            entry.launcherEntryEnabled = launcherEntryEnabled;
+                                            markEntryDirtyLocked(entry);
+                                        }
                                     } else {
                                         Log.w(TAG, "Cannot find pkg: " + packageName
                                                 + " on user " + userId);
@@ -1225,34 +1522,28 @@ public class ApplicationsState {
                 } break;
                 case MSG_LOAD_ICONS: {
                     if (hasFlag(flags, FLAG_SESSION_REQUEST_ICONS)) {
-                        int numDone = 0;
+                        if (mLoadingIcons) {
+                            // The running batch moves on to MSG_LOAD_SIZES when it completes.
+                            break;
+                        }
+                        final ArrayList<AppEntry> entries = new ArrayList<>();
                         synchronized (mEntriesMap) {
                             if (DEBUG_LOCKING) Log.v(TAG, "MSG_LOAD_ICONS acquired lock");
-                            for (int i = 0; i < mAppEntries.size() && numDone < 2; i++) {
+                            for (int i = 0; i < mAppEntries.size(); i++) {
                                 AppEntry entry = mAppEntries.get(i);
                                 if (entry.icon == null || !entry.mounted) {
-                                    synchronized (entry) {
-                                        if (entry.ensureIconLocked(mContext)) {
-                                            if (!mRunning) {
-                                                mRunning = true;
-                                                Message m = mMainHandler.obtainMessage(
-                                                        MainHandler.MSG_RUNNING_STATE_CHANGED, 1);
-                                                mMainHandler.sendMessage(m);
-                                            }
-                                            numDone++;
-                                        }
-                                    }
+                                    entries.add(entry);
                                 }
                             }
                             if (DEBUG_LOCKING) Log.v(TAG, "MSG_LOAD_ICONS releasing lock");
                         }
-                        if (numDone > 0) {
-                            if (!mMainHandler.hasMessages(MainHandler.MSG_PACKAGE_ICON_CHANGED)) {
-                                mMainHandler.sendEmptyMessage(MainHandler.MSG_PACKAGE_ICON_CHANGED);
-                            }
-                        }
-                        if (numDone >= 2) {
-                            sendEmptyMessage(MSG_LOAD_ICONS);
+                        if (!entries.isEmpty()) {
+                            setRunning();
+                            mLoadingIcons = true;
+                            new LoadBatch(entries, this::loadIcon, () -> {
+                                mLoadingIcons = false;
+                                sendEmptyMessage(MSG_LOAD_SIZES);
+                            }).start();
                             break;
                         }
                     }
@@ -1260,85 +1551,139 @@ public class ApplicationsState {
                 } break;
                 case MSG_LOAD_SIZES: {
                     if (hasFlag(flags, FLAG_SESSION_REQUEST_SIZES)) {
+                        if (mLoadingSizes) {
+                            // The running batch sends MSG_LOAD_SIZES again when it completes.
+                            break;
+                        }
+                        final ArrayList<AppEntry> entries = new ArrayList<>();
+                        boolean pending = false;
                         synchronized (mEntriesMap) {
                             if (DEBUG_LOCKING) Log.v(TAG, "MSG_LOAD_SIZES acquired lock");
-                            if (mCurComputingSizePkg != null) {
-                                if (DEBUG_LOCKING) {
-                                    Log.v(TAG,
-                                            "MSG_LOAD_SIZES releasing: currently computing");
-                                }
-                                return;
-                            }
-
                             long now = SystemClock.uptimeMillis();
                             for (int i = 0; i < mAppEntries.size(); i++) {
                                 AppEntry entry = mAppEntries.get(i);
                                 if (hasFlag(entry.info.flags, ApplicationInfo.FLAG_INSTALLED)
                                         && (entry.size == SIZE_UNKNOWN || entry.sizeStale)) {
-                                    if (entry.sizeLoadStart == 0 ||
-                                            (entry.sizeLoadStart < (now - 20 * 1000))) {
-                                        if (!mRunning) {
-                                            mRunning = true;
-                                            Message m = mMainHandler.obtainMessage(
-                                                    MainHandler.MSG_RUNNING_STATE_CHANGED, 1);
-                                            mMainHandler.sendMessage(m);
-                                        }
+                                    pending = true;
+                                    if (entry.sizeLoadStart == 0 || (entry.sizeLoadStart
+                                            < (now - SIZE_LOAD_RETRY_MILLIS))) {
                                         entry.sizeLoadStart = now;
-                                        mCurComputingSizeUuid = entry.info.storageUuid;
-                                        mCurComputingSizePkg = entry.info.packageName;
-                                        mCurComputingSizeUserId = UserHandle.getUserId(
-                                                entry.info.uid);
-
-                                        mBackgroundHandler.post(() -> {
-                                            try {
-                                                final StorageStats stats =
-                                                        mStats.queryStatsForPackage(
-                                                                mCurComputingSizeUuid,
-                                                                mCurComputingSizePkg,
-                                                                UserHandle.of(
-                                                                        mCurComputingSizeUserId));
-                                                final PackageStats legacy = new PackageStats(
-                                                        mCurComputingSizePkg,
-                                                        mCurComputingSizeUserId);
-                                                legacy.codeSize = stats.getAppBytes();
-                                                legacy.dataSize = stats.getDataBytes();
-                                                legacy.cacheSize = stats.getCacheBytes();
-                                                try {
-                                                    mStatsObserver.onGetStatsCompleted(legacy,
-                                                            true);
-                                                } catch (RemoteException ignored) {
-                                                }
-                                            } catch (NameNotFoundException | IOException e) {
-                                                Log.w(TAG, "Failed to query stats: " + e);
-                                                try {
-                                                    mStatsObserver.onGetStatsCompleted(null, false);
-                                                } catch (RemoteException ignored) {
-                                                }
-                                            }
-
-                                        });
-                                    }
-                                    if (DEBUG_LOCKING) {
-                                        Log.v(TAG,
-                                                "MSG_LOAD_SIZES releasing: now computing");
+                                        entries.add(entry);
                                     }
-                                    return;
                                 }
                             }
-                            if (!mMainHandler.hasMessages(MainHandler.MSG_ALL_SIZES_COMPUTED)) {
-                                mMainHandler.sendEmptyMessage(MainHandler.MSG_ALL_SIZES_COMPUTED);
-                                mRunning = false;
-                                Message m = mMainHandler.obtainMessage(
-                                        MainHandler.MSG_RUNNING_STATE_CHANGED, 0);
-                                mMainHandler.sendMessage(m);
-                            }
                             if (DEBUG_LOCKING) Log.v(TAG, "MSG_LOAD_SIZES releasing lock");
                         }
+                        if (!entries.isEmpty()) {
+                            setRunning();
+                            mLoadingSizes = true;
+                            new LoadBatch(entries, this::loadSize, () -> {
+                                mLoadingSizes = false;
+                                sendEmptyMessage(MSG_LOAD_SIZES);
+                            }).start();
+                            break;
+                        }
+                        // Sizes that failed to load are retried on a later pass.
+                        if (!pending
+                                && !mMainHandler.hasMessages(MainHandler.MSG_ALL_SIZES_COMPUTED)) {
+                            mMainHandler.sendEmptyMessage(MainHandler.MSG_ALL_SIZES_COMPUTED);
+                            mRunning = false;
+                            Message m = mMainHandler.obtainMessage(
+                                    MainHandler.MSG_RUNNING_STATE_CHANGED, 0);
+                            mMainHandler.sendMessage(m);
+                        }
+                    }
+                    // End of the loading chain; persist what changed for the next cold start.
+                    if (!hasMessages(MSG_SAVE_SNAPSHOT)) {
+                        sendEmptyMessage(MSG_SAVE_SNAPSHOT);
                     }
                 } break;
             }
         }
 
+        private void setRunning() {
+            if (!mRunning) {
+                mRunning = true;
+                Message m = mMainHandler.obtainMessage(
+                        MainHandler.MSG_RUNNING_STATE_CHANGED, 1);
+                mMainHandler.sendMessage(m);
+            }
+        }
+
+        /** Runs on a loader worker; only holds the lock of the entry being loaded. */
+        private void loadIcon(AppEntry entry) {
+            boolean loaded = false;
+            synchronized (entry) {
+                if (entry.icon == null || !entry.mounted) {
+                    loaded = entry.ensureIconLocked(mContext);
+                }
+            }
+            if (loaded && !mMainHandler.hasMessages(MainHandler.MSG_PACKAGE_ICON_CHANGED)) {
+                mMainHandler.sendEmptyMessage(MainHandler.MSG_PACKAGE_ICON_CHANGED);
+            }
+        }
+
+        /** Runs on a loader worker. */
+        private void verifySnapshotLabel(AppEntry entry) {
+            final boolean changed;
+            synchronized (entry) {
+                changed = entry.reloadLabelLocked(mContext);
+            }
+            if (changed) {
+                synchronized (mEntriesMap) {
+                    mSnapshotDirty = true;
+                    markEntryDirtyLocked(entry);
+                }
+                if (!mMainHandler.hasMessages(MainHandler.MSG_PACKAGE_LIST_CHANGED)) {
+                    mMainHandler.sendEmptyMessage(MainHandler.MSG_PACKAGE_LIST_CHANGED);
+                }
+            }
+        }
+
+        private void saveSnapshot() {
+            final ArrayList<AppEntrySnapshotCache.Record> records = new ArrayList<>();
+            synchronized (mEntriesMap) {
+                if (!mSnapshotDirty) {
+                    return;
+                }
+                mSnapshotDirty = false;
+                for (int i = 0; i < mAppEntries.size(); i++) {
+                    final AppEntry entry = mAppEntries.get(i);
+                    final AppEntrySnapshotCache.Record record;
+                    synchronized (entry) {
+                        record = AppEntrySnapshotCache.Record.fromLocked(entry);
+                    }
+                    if (record != null) {
+                        records.add(record);
+                    }
+                }
+            }
+            mSnapshotCache.write(getSnapshotLocales(), records);
+        }
+
+        /** Runs on a loader worker. */
+        private void loadSize(AppEntry entry) {
+            final ApplicationInfo info;
+            synchronized (entry) {
+                info = entry.info;
+            }
+            final int userId = UserHandle.getUserId(info.uid);
+            try {
+                final StorageStats stats = mStats.queryStatsForPackage(info.storageUuid,
+                        info.packageName, UserHandle.of(userId));
+                final PackageStats legacy = new PackageStats(info.packageName, userId);
+                legacy.codeSize = stats.getAppBytes();
+                legacy.dataSize = stats.getDataBytes();
+                legacy.cacheSize = stats.getCacheBytes();
+                try {
+                    mStatsObserver.onGetStatsCompleted(legacy, true);
+                } catch (RemoteException ignored) {
+                }
+            } catch (NameNotFoundException | IOException e) {
+                Log.w(TAG, "Failed to query stats: " + e);
+            }
+        }
+
         @SessionFlags
         private int getCombinedSessionFlags(List<Session> sessions) {
             synchronized (mEntriesMap) {
@@ -1403,23 +1748,79 @@ public class ApplicationsState {
                             }
                         }
                         if (sizeChanged) {
+                            mSnapshotDirty = true;
+                            markEntryDirtyLocked(entry);
                             Message msg = mMainHandler.obtainMessage(
                                     MainHandler.MSG_PACKAGE_SIZE_CHANGED, stats.packageName);
                             mMainHandler.sendMessage(msg);
                         }
                     }
-                    if (mCurComputingSizePkg != null
-                            && (mCurComputingSizePkg.equals(stats.packageName)
-                            && mCurComputingSizeUserId == stats.userHandle)) {
-                        mCurComputingSizePkg = null;
-                        sendEmptyMessage(MSG_LOAD_SIZES);
-                    }
                     if (DEBUG_LOCKING) Log.v(TAG, "onGetStatsCompleted releasing lock");
                 }
             }
         };
     }
 
+    /**
+     * Loads a set of entries on up to {@link #MAX_PARALLEL_LOADS} workers of
+     * {@link #mLoaderExecutor}. Visible entries are handed out first, and the completion callback
+     * is posted to the background handler once every entry has been processed.
+     */
+    private class LoadBatch {
+        private final LinkedHashSet<AppEntry> mPending;
+        private final Consumer<AppEntry> mLoader;
+        private final Runnable mOnComplete;
+        private int mActiveWorkers;
+
+        LoadBatch(List<AppEntry> entries, Consumer<AppEntry> loader, Runnable onComplete) {
+            mPending = new LinkedHashSet<>(entries);
+            mLoader = loader;
+            mOnComplete = onComplete;
+        }
+
+        void start() {
+            final int workers = Math.min(MAX_PARALLEL_LOADS, mPending.size());
+            synchronized (this) {
+                mActiveWorkers = workers;
+            }
+            for (int i = 0; i < workers; i++) {
+                mLoaderExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                AppEntry entry;
+                while ((entry = next()) != null) {
+                    mLoader.accept(entry);
+                }
+            } finally {
+                final boolean last;
+                synchronized (this) {
+                    last = --mActiveWorkers == 0;
+                }
+                if (last) {
+                    mBackgroundHandler.post(mOnComplete);
+                }
+            }
+        }
+
+        private synchronized AppEntry next() {
+            if (mPending.isEmpty()) {
+                return null;
+            }
+            for (AppEntry visible : mVisibleEntries) {
+                if (mPending.remove(visible)) {
+                    return visible;
+                }
+            }
+            final Iterator<AppEntry> it = mPending.iterator();
+            final AppEntry entry = it.next();
+            it.remove();
+            return entry;
+        }
+    }
+
     /**
      * Receives notifications when applications are added/removed.
      */
@@ -1510,6 +1911,14 @@ public class ApplicationsState {
 
         void onRebuildComplete(ArrayList<AppEntry> apps);
 
+        /**
+         * Called instead of {@link #onRebuildComplete} for sessions that enabled
+         * {@link Session#setIncrementalRebuildEnabled incremental rebuilds}.
+         */
+        default void onRebuildDelta(ChangeSet changeSet) {
+            onRebuildComplete(changeSet.getApps());
+        }
+
         void onPackageIconChanged();
 
         void onPackageSizeChanged(String packageName);
@@ -1521,6 +1930,49 @@ public class ApplicationsState {
         void onLoadEntriesCompleted();
     }
 
+    /**
+     * Result of an incremental {@link Session#rebuild}: the new list, plus the entries that were
+     * added to it, removed from it, or changed while staying in it since the previous result.
+     */
+    public static class ChangeSet {
+        final ArrayList<AppEntry> mApps;
+        final ArrayList<AppEntry> mInserted = new ArrayList<>();
+        final ArrayList<AppEntry> mRemoved = new ArrayList<>();
+        final ArrayList<AppEntry> mMoved = new ArrayList<>();
+        final boolean mFullRebuild;
+
+        ChangeSet(ArrayList<AppEntry> apps, boolean fullRebuild) {
+            mApps = apps;
+            mFullRebuild = fullRebuild;
+        }
+
+        /** The filtered and sorted list, equivalent to a full rebuild. */
+        public ArrayList<AppEntry> getApps() {
+            return mApps;
+        }
+
+        /**
+         * Whether the list was computed from scratch, in which case no per-entry changes are
+         * reported.
+         */
+        public boolean isFullRebuild() {
+            return mFullRebuild;
+        }
+
+        public List<AppEntry> getInserted() {
+            return mInserted;
+        }
+
+        public List<AppEntry> getRemoved() {
+            return mRemoved;
+        }
+
+        /** Entries that changed and may have been repositioned within the list. */
+        public List<AppEntry> getMoved() {
+            return mMoved;
+        }
+    }
+
     public static class SizeInfo {
         public long cacheSize;
         public long codeSize;
@@ -1588,16 +2040,31 @@ public class ApplicationsState {
         // A location where extra info can be placed to be used by custom filters.
         public Object extraInfo;
 
+        // Whether the label was restored from the snapshot and has not been reloaded since.
+        boolean labelFromSnapshot;
+
+        // Collation key of the label, replaced whenever the label or the sorting collator changes.
+        private LabelSortKey mLabelSortKey;
+
         @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
         public AppEntry(Context context, ApplicationInfo info, long id) {
+            this(context, info, id, null);
+        }
+
+        AppEntry(Context context, ApplicationInfo info, long id,
+                AppEntrySnapshotCache.Record snapshot) {
             apkFile = new File(info.sourceDir);
             this.id = id;
             this.info = info;
             this.size = SIZE_UNKNOWN;
             this.sizeStale = true;
-            ensureLabel(context);
+            if (snapshot != null && snapshot.matches(info, apkFile)) {
+                restoreFromSnapshot(context, snapshot);
+            } else {
+                ensureLabel(context);
+            }
             // Speed up the cache of the icon and label description if they haven't been created.
-            ThreadUtils.postOnBackgroundThread(() -> {
+            ThreadUtils.postOnBackgroundThread(ThreadUtils.LANE_PREFETCH, () -> {
                 if (this.icon == null) {
                     this.ensureIconLocked(context);
                 }
@@ -1620,6 +2087,81 @@ public class ApplicationsState {
             }
         }
 
+        private void restoreFromSnapshot(Context context, AppEntrySnapshotCache.Record snapshot) {
+            this.mounted = true;
+            this.label = snapshot.label;
+            this.normalizedLabel = snapshot.normalizedLabel;
+            this.labelFromSnapshot = true;
+            if (snapshot.size >= 0) {
+                // Still marked stale, so MSG_LOAD_SIZES refreshes these in the background.
+                this.size = snapshot.size;
+                this.internalSize = snapshot.internalSize;
+                this.externalSize = snapshot.externalSize;
+                this.codeSize = snapshot.codeSize;
+                this.dataSize = snapshot.dataSize;
+                this.cacheSize = snapshot.cacheSize;
+                this.externalCodeSize = snapshot.externalCodeSize;
+                this.externalDataSize = snapshot.externalDataSize;
+                this.externalCacheSize = snapshot.externalCacheSize;
+                this.sizeStr = formatSize(context, this.size);
+                this.internalSizeStr = formatSize(context, this.internalSize);
+                this.externalSizeStr = formatSize(context, this.externalSize);
+            }
+        }
+
+        /**
+         * Returns the collation key of {@link #label} under {@code collator}, or null if there
+         * is no label yet.
+         */
+        CollationKey getLabelCollationKey(Collator collator) {
+            final String label = this.label;
+            if (label == null) {
+                return null;
+            }
+            LabelSortKey sortKey = mLabelSortKey;
+            // Identity checks: any reassignment of the label invalidates the key.
+            if (sortKey == null || sortKey.mLabel != label || sortKey.mCollator != collator) {
+                final CollationKey key;
+                synchronized (collator) {
+                    key = collator.getCollationKey(label);
+                }
+                sortKey = new LabelSortKey(label, collator, key);
+                mLabelSortKey = sortKey;
+            }
+            return sortKey.mKey;
+        }
+
+        private static String formatSize(Context context, long size) {
+            return size >= 0 ? Formatter.formatFileSize(context, size) : null;
+        }
+
+        /**
+         * Loads the label from the package again, returning whether it changed. Must be called
+         * with this entry's lock held.
+         */
+        boolean reloadLabelLocked(Context context) {
+            final String oldLabel = this.label;
+            // The sort and the search filter read the label without this entry's lock, so the
+            // new label is published in a single assignment rather than clearing it first.
+            final String newLabel;
+            if (!this.apkFile.exists()) {
+                this.mounted = false;
+                newLabel = info.packageName;
+            } else {
+                this.mounted = true;
+                final CharSequence label = info.loadLabel(context.getPackageManager());
+                newLabel = label != null ? label.toString() : info.packageName;
+            }
+            this.labelFromSnapshot = false;
+            if (Objects.equals(oldLabel, newLabel)) {
+                return false;
+            }
+            this.label = newLabel;
+            this.normalizedLabel = null;
+            this.labelDescription = null;
+            return true;
+        }
+
         boolean ensureIconLocked(Context context) {
             if (this.icon == null) {
                 if (this.apkFile.exists()) {
@@ -1668,25 +2210,64 @@ public class ApplicationsState {
         }
     }
 
+    /** Immutable so that it can be swapped atomically by concurrent sorts. */
+    private static final class LabelSortKey {
+        final String mLabel;
+        final Collator mCollator;
+        final CollationKey mKey;
+
+        LabelSortKey(String label, Collator collator, CollationKey key) {
+            mLabel = label;
+            mCollator = collator;
+            mKey = key;
+        }
+    }
+
     private static boolean hasFlag(int flags, int flag) {
         return (flags & flag) != 0;
     }
 
     /**
      * Compare by label, then package name, then uid.
+     *
+     * <p>Labels are compared through collation keys cached on each entry, so a sort costs one
+     * collator pass per entry and byte comparisons afterwards.
      */
     public static final Comparator<AppEntry> ALPHA_COMPARATOR = new Comparator<AppEntry>() {
-        private final Collator sCollator = Collator.getInstance();
+        private volatile Collator mCollator = Collator.getInstance();
+        private volatile Locale mCollatorLocale = Locale.getDefault();
+
+        private Collator getCollator() {
+            final Locale locale = Locale.getDefault();
+            if (!locale.equals(mCollatorLocale)) {
+                // Entries notice the new instance and recompute their keys.
+                mCollator = Collator.getInstance(locale);
+                mCollatorLocale = locale;
+            }
+            return mCollator;
+        }
 
         @Override
         public int compare(AppEntry object1, AppEntry object2) {
-            int compareResult = sCollator.compare(object1.label, object2.label);
+            final Collator collator = getCollator();
+            final CollationKey key1 = object1.getLabelCollationKey(collator);
+            final CollationKey key2 = object2.getLabelCollationKey(collator);
+            int compareResult;
+            if (key1 != null && key2 != null) {
+                compareResult = key1.compareTo(key2);
+            } else {
+                synchronized (collator) {
+                    compareResult = collator.compare(object1.label, object2.label);
+                }
+            }
             if (compareResult != 0) {
                 return compareResult;
             }
             if (object1.info != null && object2.info != null) {
-                compareResult =
-                        sCollator.compare(object1.info.packageName, object2.info.packageName);
+                synchronized (collator) {
+                    compareResult =
+                            collator.compare(object1.info.packageName, object2.info.packageName);
+                }
                 if (compareResult != 0) {
                     return compareResult;
                 }
@@ -1952,6 +2533,17 @@ public class ApplicationsState {
         public boolean filterApp(AppEntry info) {
             return Objects.equals(info.info.volumeUuid, mVolumeUuid);
         }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof VolumeFilter
+                    && Objects.equals(mVolumeUuid, ((VolumeFilter) o).mVolumeUuid);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(mVolumeUuid);
+        }
     }
 
     public static class CompoundFilter implements AppFilter {
@@ -1979,6 +2571,22 @@ public class ApplicationsState {
         public boolean filterApp(AppEntry info) {
             return mFirstFilter.filterApp(info) && mSecondFilter.filterApp(info);
         }
+
+        // Structural equality lets sessions recognize a re-created filter chain as unchanged.
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CompoundFilter)) {
+                return false;
+            }
+            final CompoundFilter other = (CompoundFilter) o;
+            return mFirstFilter.equals(other.mFirstFilter)
+                    && mSecondFilter.equals(other.mSecondFilter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mFirstFilter, mSecondFilter);
+        }
     }
 
     public static final AppFilter FILTER_AUDIO = new AppFilter() {
@@ -21,12 +21,14 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.text.TextUtils;
+import android.util.Log;
 import android.util.Pair;
 
 import androidx.annotation.NonNull;
 import androidx.preference.Preference;
 
 import com.android.internal.logging.nano.MetricsProto.MetricsEvent;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -34,14 +36,25 @@ import java.util.List;
 /**
  * FeatureProvider for metrics.
  */
-public class MetricsFeatureProvider {
+public class MetricsFeatureProvider implements ThreadUtils.TaskMetricsListener {
+    private static final String TAG = "MetricsFeatureProvider";
+
     /**
      * The metrics category constant for logging source when a setting fragment is opened.
      */
     public static final String EXTRA_SOURCE_METRICS_CATEGORY = ":settings:source_metrics";
 
+    // Background tasks that waited or ran longer than this are logged.
+    private static final long SLOW_BACKGROUND_TASK_MILLIS = 500;
+
     protected List<LogWriter> mLoggerWriters;
 
+    private final BackgroundTaskStats[] mBackgroundTaskStats = {
+            new BackgroundTaskStats(),
+            new BackgroundTaskStats(),
+            new BackgroundTaskStats()
+    };
+
     public MetricsFeatureProvider() {
         mLoggerWriters = new ArrayList<>();
         installLogWriters();
@@ -202,4 +215,53 @@ public class MetricsFeatureProvider {
                 0);
         return true;
     }
+
+    @Override
+    public void onBackgroundTaskCompleted(@ThreadUtils.Lane int lane, int queueDepth,
+            long waitMillis, long runMillis) {
+        final BackgroundTaskStats stats = mBackgroundTaskStats[lane];
+        synchronized (stats) {
+            stats.count++;
+            stats.totalWaitMillis += waitMillis;
+            stats.totalRunMillis += runMillis;
+            stats.maxWaitMillis = Math.max(stats.maxWaitMillis, waitMillis);
+            stats.maxRunMillis = Math.max(stats.maxRunMillis, runMillis);
+            stats.maxQueueDepth = Math.max(stats.maxQueueDepth, queueDepth);
+        }
+        if (waitMillis >= SLOW_BACKGROUND_TASK_MILLIS || runMillis >= SLOW_BACKGROUND_TASK_MILLIS) {
+            Log.w(TAG, "Slow background task on lane " + lane + ": queueDepth=" + queueDepth
+                    + " wait=" + waitMillis + "ms run=" + runMillis + "ms");
+        }
+    }
+
+    /**
+     * Returns a copy of the statistics of the background tasks completed so far on {@code lane}.
+     */
+    public BackgroundTaskStats getBackgroundTaskStats(@ThreadUtils.Lane int lane) {
+        final BackgroundTaskStats stats = mBackgroundTaskStats[lane];
+        synchronized (stats) {
+            return stats.copy();
+        }
+    }
+
+    /** Aggregated queueing and execution statistics of one {@link ThreadUtils} lane. */
+    public static class BackgroundTaskStats {
+        public long count;
+        public long totalWaitMillis;
+        public long maxWaitMillis;
+        public long totalRunMillis;
+        public long maxRunMillis;
+        public int maxQueueDepth;
+
+        private BackgroundTaskStats copy() {
+            final BackgroundTaskStats copy = new BackgroundTaskStats();
+            copy.count = count;
+            copy.totalWaitMillis = totalWaitMillis;
+            copy.maxWaitMillis = maxWaitMillis;
+            copy.totalRunMillis = totalRunMillis;
+            copy.maxRunMillis = maxRunMillis;
+            copy.maxQueueDepth = maxQueueDepth;
+            return copy;
+        }
+    }
 }
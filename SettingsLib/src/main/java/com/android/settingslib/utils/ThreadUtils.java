@@ -15,19 +15,72 @@
  */
 package com.android.settingslib.utils;
 
+import android.annotation.IntDef;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.OnLifecycleEvent;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class ThreadUtils {
 
+    /**
+     * Lane for work whose result is about to be shown, such as tile titles and summaries. This is
+     * the default lane.
+     */
+    public static final int LANE_UI_VISIBLE = 0;
+
+    /** Lane for work that warms caches before they are needed. */
+    public static final int LANE_PREFETCH = 1;
+
+    /** Lane for housekeeping without a user-visible deadline, such as indexing or cleanup. */
+    public static final int LANE_MAINTENANCE = 2;
+
+    /**
+     * Background lanes. Each lane has its own threads, so slow work in one lane cannot delay
+     * tasks queued in another.
+     */
+    @IntDef(prefix = {"LANE_"}, value = {
+            LANE_UI_VISIBLE,
+            LANE_PREFETCH,
+            LANE_MAINTENANCE
+    })
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Lane {
+    }
+
+    /** Receives queueing and execution statistics of every completed background task. */
+    public interface TaskMetricsListener {
+        /**
+         * @param lane the lane the task ran on
+         * @param queueDepth the number of tasks queued ahead of it when it was posted
+         * @param waitMillis the time between posting and starting the task
+         * @param runMillis the time the task took to run
+         */
+        void onBackgroundTaskCompleted(@Lane int lane, int queueDepth, long waitMillis,
+                long runMillis);
+    }
+
+    private static final int LANE_COUNT = 3;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
     private static volatile Thread sMainThread;
     private static volatile Handler sMainThreadHandler;
-    private static volatile ExecutorService sThreadExecutor;
+    private static volatile ThreadPoolExecutor[] sLaneExecutors;
+    private static volatile TaskMetricsListener sTaskMetricsListener;
 
     /**
      * Returns true if the current thread is the UI thread.
@@ -60,21 +113,59 @@ public class ThreadUtils {
     }
 
     /**
-     * Posts runnable in background using shared background thread pool.
+     * Posts runnable in background on the {@link #LANE_UI_VISIBLE} lane.
      *
      * @Return A future of the task that can be monitored for updates or cancelled.
      */
     public static Future postOnBackgroundThread(Runnable runnable) {
-        return getThreadExecutor().submit(runnable);
+        return postOnBackgroundThread(LANE_UI_VISIBLE, runnable);
     }
 
     /**
-     * Posts callable in background using shared background thread pool.
+     * Posts callable in background on the {@link #LANE_UI_VISIBLE} lane.
      *
      * @Return A future of the task that can be monitored for updates or cancelled.
      */
     public static Future postOnBackgroundThread(Callable callable) {
-        return getThreadExecutor().submit(callable);
+        return postOnBackgroundThread(LANE_UI_VISIBLE, callable);
+    }
+
+    /**
+     * Posts runnable in background on the given lane.
+     *
+     * @Return A future of the task that can be monitored for updates or cancelled.
+     */
+    public static Future postOnBackgroundThread(@Lane int lane, Runnable runnable) {
+        return execute(lane, new LaneTask<>(runnable, lane));
+    }
+
+    /**
+     * Posts callable in background on the given lane.
+     *
+     * @Return A future of the task that can be monitored for updates or cancelled.
+     */
+    public static Future postOnBackgroundThread(@Lane int lane, Callable callable) {
+        return execute(lane, new LaneTask<>(callable, lane));
+    }
+
+    /**
+     * Posts runnable in background on the given lane, and cancels it when {@code owner} is
+     * destroyed. Interrupts the task if it is already running by then.
+     *
+     * @Return A future of the task that can be monitored for updates or cancelled.
+     */
+    public static Future postOnBackgroundThread(@Lane int lane, LifecycleOwner owner,
+            Runnable runnable) {
+        final LaneTask<?> task = new LaneTask<>(runnable, lane);
+        cancelOnDestroy(owner, task);
+        return execute(lane, task);
+    }
+
+    /**
+     * Sets the listener notified of every completed background task, or null to stop reporting.
+     */
+    public static void setTaskMetricsListener(TaskMetricsListener listener) {
+        sTaskMetricsListener = listener;
     }
 
     /**
@@ -84,11 +175,126 @@ public class ThreadUtils {
         getUiThreadHandler().post(runnable);
     }
 
-    private static synchronized ExecutorService getThreadExecutor() {
-        if (sThreadExecutor == null) {
-            sThreadExecutor = Executors.newFixedThreadPool(
-                    Runtime.getRuntime().availableProcessors());
+    private static Future execute(@Lane int lane, LaneTask<?> task) {
+        final ThreadPoolExecutor executor = getLaneExecutors()[lane];
+        task.mQueueDepth = executor.getQueue().size();
+        executor.execute(task);
+        return task;
+    }
+
+    private static void cancelOnDestroy(LifecycleOwner owner, LaneTask<?> task) {
+        final Runnable register = () -> {
+            final Lifecycle lifecycle = owner.getLifecycle();
+            if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+                task.cancel(true /* mayInterruptIfRunning */);
+                return;
+            }
+            final CancelOnDestroyObserver observer = new CancelOnDestroyObserver(task);
+            lifecycle.addObserver(observer);
+            // Stop observing once the task is done, so long-lived owners do not accumulate
+            // observers.
+            task.setOnDone(() -> postOnMainThread(() -> lifecycle.removeObserver(observer)));
+        };
+        // Lifecycle observers may only be added on the main thread.
+        if (isMainThread()) {
+            register.run();
+        } else {
+            postOnMainThread(register);
+        }
+    }
+
+    private static synchronized ThreadPoolExecutor[] getLaneExecutors() {
+        if (sLaneExecutors == null) {
+            final int processors = Runtime.getRuntime().availableProcessors();
+            final ThreadPoolExecutor[] executors = new ThreadPoolExecutor[LANE_COUNT];
+            executors[LANE_UI_VISIBLE] = newLaneExecutor(processors,
+                    Process.THREAD_PRIORITY_DEFAULT, "ui");
+            executors[LANE_PREFETCH] = newLaneExecutor(Math.max(1, processors / 2),
+                    Process.THREAD_PRIORITY_BACKGROUND, "prefetch");
+            executors[LANE_MAINTENANCE] = newLaneExecutor(Math.max(1, processors / 4),
+                    Process.THREAD_PRIORITY_BACKGROUND, "maintenance");
+            sLaneExecutors = executors;
+        }
+        return sLaneExecutors;
+    }
+
+    private static ThreadPoolExecutor newLaneExecutor(int threads, int threadPriority,
+            String name) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> new Thread(() -> {
+                    Process.setThreadPriority(threadPriority);
+                    runnable.run();
+                }, "SettingsBg-" + name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static class LaneTask<V> extends FutureTask<V> {
+        private final int mLane;
+        private final long mPostTime = SystemClock.uptimeMillis();
+        private int mQueueDepth;
+        private Runnable mOnDone;
+
+        LaneTask(Callable<V> callable, @Lane int lane) {
+            super(callable);
+            mLane = lane;
+        }
+
+        LaneTask(Runnable runnable, @Lane int lane) {
+            super(runnable, null);
+            mLane = lane;
+        }
+
+        @Override
+        public void run() {
+            if (isDone()) {
+                // Cancelled while queued.
+                return;
+            }
+            final long startTime = SystemClock.uptimeMillis();
+            super.run();
+            final TaskMetricsListener listener = sTaskMetricsListener;
+            if (listener != null) {
+                listener.onBackgroundTaskCompleted(mLane, mQueueDepth, startTime - mPostTime,
+                        SystemClock.uptimeMillis() - startTime);
+            }
+        }
+
+        void setOnDone(Runnable onDone) {
+            final boolean done;
+            synchronized (this) {
+                mOnDone = onDone;
+                done = isDone();
+            }
+            if (done) {
+                onDone.run();
+            }
+        }
+
+        @Override
+        protected void done() {
+            final Runnable onDone;
+            synchronized (this) {
+                onDone = mOnDone;
+                mOnDone = null;
+            }
+            if (onDone != null) {
+                onDone.run();
+            }
+        }
+    }
+
+    private static class CancelOnDestroyObserver implements LifecycleObserver {
+        private final Future<?> mFuture;
+
+        CancelOnDestroyObserver(Future<?> future) {
+            mFuture = future;
+        }
+
+        @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
+        public void onDestroy() {
+            mFuture.cancel(true /* mayInterruptIfRunning */);
         }
-        return sThreadExecutor;
     }
 }
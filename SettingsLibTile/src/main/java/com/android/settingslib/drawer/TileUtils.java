@@ -235,26 +235,7 @@ public class TileUtils {
     public static List<DashboardCategory> getCategories(Context context,
             Map<Pair<String, String>, Tile> cache) {
         final long startTime = System.currentTimeMillis();
-        final boolean setup =
-                Global.getInt(context.getContentResolver(), Global.DEVICE_PROVISIONED, 0) != 0;
-        final ArrayList<Tile> tiles = new ArrayList<>();
-        final UserManager userManager = (UserManager) context.getSystemService(
-                Context.USER_SERVICE);
-        for (UserHandle user : userManager.getUserProfiles()) {
-            // TODO: Needs much optimization, too many PM queries going on here.
-            if (user.getIdentifier() == ActivityManager.getCurrentUser()) {
-                // Only add Settings for this user.
-                loadTilesForAction(context, user, SETTINGS_ACTION, cache, null, tiles, true);
-                loadTilesForAction(context, user, OPERATOR_SETTINGS, cache,
-                        OPERATOR_DEFAULT_CATEGORY, tiles, false);
-                loadTilesForAction(context, user, MANUFACTURER_SETTINGS, cache,
-                        MANUFACTURER_DEFAULT_CATEGORY, tiles, false);
-            }
-            if (setup) {
-                loadTilesForAction(context, user, EXTRA_SETTINGS_ACTION, cache, null, tiles, false);
-                loadTilesForAction(context, user, IA_SETTINGS_ACTION, cache, null, tiles, false);
-            }
-        }
+        final List<Tile> tiles = loadTiles(context, cache, null /* packageName */);
 
         final HashMap<String, DashboardCategory> categoryMap = new HashMap<>();
         for (Tile tile : tiles) {
@@ -283,13 +264,65 @@ public class TileUtils {
         return categories;
     }
 
+    /**
+     * Loads the tiles injected by a single package for all profiles, reusing and updating tiles
+     * in {@code cache} like {@link #getCategories}. The tiles are not sorted.
+     */
+    public static List<Tile> getTilesForPackage(Context context, String packageName,
+            Map<Pair<String, String>, Tile> cache) {
+        return loadTiles(context, cache, packageName);
+    }
+
+    // Loads the tiles of all packages if packageName is null.
+    private static List<Tile> loadTiles(Context context, Map<Pair<String, String>, Tile> cache,
+            String packageName) {
+        final boolean setup =
+                Global.getInt(context.getContentResolver(), Global.DEVICE_PROVISIONED, 0) != 0;
+        final ArrayList<Tile> tiles = new ArrayList<>();
+        final UserManager userManager = (UserManager) context.getSystemService(
+                Context.USER_SERVICE);
+        for (UserHandle user : userManager.getUserProfiles()) {
+            // TODO: Needs much optimization, too many PM queries going on here.
+            if (user.getIdentifier() == ActivityManager.getCurrentUser()) {
+                // Only add Settings for this user.
+                loadTilesForAction(context, user, SETTINGS_ACTION, cache, null, tiles, true,
+                        packageName);
+                loadTilesForAction(context, user, OPERATOR_SETTINGS, cache,
+                        OPERATOR_DEFAULT_CATEGORY, tiles, false, packageName);
+                loadTilesForAction(context, user, MANUFACTURER_SETTINGS, cache,
+                        MANUFACTURER_DEFAULT_CATEGORY, tiles, false, packageName);
+            }
+            if (setup) {
+                loadTilesForAction(context, user, EXTRA_SETTINGS_ACTION, cache, null, tiles,
+                        false, packageName);
+                loadTilesForAction(context, user, IA_SETTINGS_ACTION, cache, null, tiles, false,
+                        packageName);
+            }
+        }
+        return tiles;
+    }
+
     @VisibleForTesting
     static void loadTilesForAction(Context context,
             UserHandle user, String action, Map<Pair<String, String>, Tile> addedCache,
             String defaultCategory, List<Tile> outTiles, boolean requireSettings) {
+        loadTilesForAction(context, user, action, addedCache, defaultCategory, outTiles,
+                requireSettings, null /* packageName */);
+    }
+
+    // Only queries components of packageName unless it is null.
+    private static void loadTilesForAction(Context context,
+            UserHandle user, String action, Map<Pair<String, String>, Tile> addedCache,
+            String defaultCategory, List<Tile> outTiles, boolean requireSettings,
+            String packageName) {
         final Intent intent = new Intent(action);
         if (requireSettings) {
+            if (packageName != null && !SETTING_PKG.equals(packageName)) {
+                return;
+            }
             intent.setPackage(SETTING_PKG);
+        } else if (packageName != null) {
+            intent.setPackage(packageName);
         }
         loadActivityTiles(context, user, addedCache, defaultCategory, outTiles, intent);
         loadProviderTiles(context, user, addedCache, defaultCategory, outTiles, intent);
@@ -20,6 +20,7 @@ import android.app.settings.SettingsEnums;
 
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.search.BaseSearchIndexProvider;
+import com.android.settings.search.NonIndexableKeysCache;
 import com.android.settingslib.search.SearchIndexable;
 
 @SearchIndexable
@@ -43,5 +44,12 @@ public class LegalSettings extends DashboardFragment {
     }
 
     public static final BaseSearchIndexProvider SEARCH_INDEX_DATA_PROVIDER =
-            new BaseSearchIndexProvider(R.xml.about_legal);
+            new BaseSearchIndexProvider(R.xml.about_legal) {
+
+                @Override
+                protected int getAvailabilityInputs() {
+                    // Controllers look for activities and modules that provide legal info.
+                    return NonIndexableKeysCache.INPUT_PACKAGES;
+                }
+            };
 }
@@ -63,7 +63,8 @@ public class SettingsInitialize extends BroadcastReceiver {
         final PackageManager pm = context.getPackageManager();
         managedProfileSetup(context, pm, broadcast, userInfo);
         webviewSettingSetup(context, pm, userInfo);
-        ThreadUtils.postOnBackgroundThread(() -> refreshExistingShortcuts(context));
+        ThreadUtils.postOnBackgroundThread(ThreadUtils.LANE_MAINTENANCE,
+                () -> refreshExistingShortcuts(context));
     }
 
     private void managedProfileSetup(Context context, final PackageManager pm, Intent broadcast,
@@ -123,6 +123,7 @@ import com.android.settings.notification.app.AppNotificationSettings;
 import com.android.settings.widget.LoadingViewController;
 import com.android.settings.wifi.AppStateChangeWifiStateBridge;
 import com.android.settings.wifi.ChangeWifiStateDetails;
+import com.android.settingslib.applications.AppEntrySearchIndex;
 import com.android.settingslib.applications.ApplicationsState;
 import com.android.settingslib.applications.ApplicationsState.AppEntry;
 import com.android.settingslib.applications.ApplicationsState.AppFilter;
@@ -1028,6 +1029,7 @@ public class ManageApplications extends InstrumentedFragment
             setHasStableIds(true);
             mState = state;
             mSession = state.newSession(this);
+            mSession.setIncrementalRebuildEnabled(true);
             mManageApplications = manageApplications;
             mLoadingViewController = new LoadingViewController(
                     mManageApplications.mLoadingContainer,
@@ -1309,6 +1311,7 @@ public class ManageApplications extends InstrumentedFragment
                 mManageApplications.mRecyclerView.getLayoutManager().scrollToPosition(mLastIndex);
                 mLastIndex = -1;
             }
+            updateVisibleEntries();
 
             if (mManageApplications.mListType == LIST_TYPE_USAGE_ACCESS) {
                 // No enabled or disabled filters for usage access.
@@ -1319,6 +1322,25 @@ public class ManageApplications extends InstrumentedFragment
             mManageApplications.setHasInstant(mState.haveInstantApps());
         }
 
+        /**
+         * Lets {@link ApplicationsState} load icons and sizes of the rows on screen first.
+         */
+        void updateVisibleEntries() {
+            if (mRecyclerView == null || mEntries == null) {
+                return;
+            }
+            final LinearLayoutManager layoutManager =
+                    (LinearLayoutManager) mRecyclerView.getLayoutManager();
+            final int first = layoutManager.findFirstVisibleItemPosition();
+            final int last = Math.min(layoutManager.findLastVisibleItemPosition() + 1,
+                    mEntries.size());
+            if (first == RecyclerView.NO_POSITION || first >= last) {
+                mState.setVisibleEntries(Collections.emptyList());
+                return;
+            }
+            mState.setVisibleEntries(mEntries.subList(first, last));
+        }
+
         @VisibleForTesting
         void updateLoading() {
             final boolean appLoaded = mHasReceivedLoadEntries && mSession.getAllApps().size() != 0;
@@ -1332,6 +1354,8 @@ public class ManageApplications extends InstrumentedFragment
         @Override
         public void onExtraInfoUpdated() {
             mHasReceivedBridgeCallback = true;
+            // Filters and comparators may read extraInfo, which the session does not track.
+            mSession.invalidateRebuildCache();
             rebuild();
         }
 
@@ -1531,6 +1555,9 @@ public class ManageApplications extends InstrumentedFragment
             @Override
             public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
                 mScrollState = newState;
+                if (mScrollState == SCROLL_STATE_IDLE) {
+                    mAdapter.updateVisibleEntries();
+                }
                 if (mScrollState == SCROLL_STATE_IDLE && mDelayNotifyDataChange) {
                     mDelayNotifyDataChange = false;
                     mAdapter.notifyDataSetChanged();
@@ -1551,19 +1578,24 @@ public class ManageApplications extends InstrumentedFragment
          * Item that does not contains the specified substring will be removed from the list.</p>
          */
         private class SearchFilter extends Filter {
+            // Only used on the filter thread.
+            private ArrayList<AppEntry> mSearcherEntries;
+            private AppEntrySearchIndex.Searcher mSearcher;
+
             @WorkerThread
             @Override
             protected FilterResults performFiltering(CharSequence query) {
+                final ArrayList<AppEntry> originalEntries = mOriginalEntries;
                 final ArrayList<AppEntry> matchedEntries;
                 if (TextUtils.isEmpty(query)) {
-                    matchedEntries = mOriginalEntries;
+                    matchedEntries = originalEntries;
                 } else {
-                    matchedEntries = new ArrayList<>();
-                    for (AppEntry entry : mOriginalEntries) {
-                        if (entry.label.toLowerCase().contains(query.toString().toLowerCase())) {
-                            matchedEntries.add(entry);
-                        }
+                    if (mSearcher == null || mSearcherEntries != originalEntries) {
+                        mSearcher = mState.getSearchIndex().newSearcher(originalEntries);
+                        mSearcherEntries = originalEntries;
                     }
+                    matchedEntries = new ArrayList<>();
+                    mSearcher.filter(query.toString(), matchedEntries);
                 }
                 final FilterResults results = new FilterResults();
                 results.values = matchedEntries;
@@ -21,6 +21,7 @@ import android.app.settings.SettingsEnums;
 import com.android.settings.R;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.search.BaseSearchIndexProvider;
+import com.android.settings.search.NonIndexableKeysCache;
 import com.android.settingslib.search.SearchIndexable;
 
 @SearchIndexable
@@ -44,5 +45,12 @@ public class SpecialAccessSettings extends DashboardFragment {
     }
 
     public static final BaseSearchIndexProvider SEARCH_INDEX_DATA_PROVIDER =
-            new BaseSearchIndexProvider(R.xml.special_access);
+            new BaseSearchIndexProvider(R.xml.special_access) {
+
+                @Override
+                protected int getAvailabilityInputs() {
+                    return NonIndexableKeysCache.INPUT_PACKAGES
+                            | NonIndexableKeysCache.INPUT_PROFILES;
+                }
+            };
 }
@@ -25,8 +25,10 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.net.Uri;
 import android.os.AsyncTask;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.ArraySet;
 import android.util.Log;
 
@@ -57,6 +59,9 @@ public class CategoryMixin implements LifecycleObserver {
     private final Context mContext;
     private final PackageReceiver mPackageReceiver = new PackageReceiver();
     private final List<CategoryListener> mCategoryListeners = new ArrayList<>();
+    // Packages changed by broadcasts but not reloaded yet (key: package name, value: whether its
+    // components may have been enabled or disabled)
+    private final ArrayMap<String, Boolean> mPendingPackages = new ArrayMap<>();
     private int mCategoriesUpdateTaskCount;
 
     public CategoryMixin(Context context) {
@@ -162,7 +167,17 @@ public class CategoryMixin implements LifecycleObserver {
         @Override
         protected Set<String> doInBackground(Boolean... params) {
             mPreviousTileMap = mCategoryManager.getTileByComponentMap();
-            mCategoryManager.reloadAllCategories(mContext);
+            final Map<String, Boolean> pendingPackages;
+            synchronized (mPendingPackages) {
+                // A full reload covers the pending packages as well.
+                pendingPackages = new ArrayMap<>(mPendingPackages);
+                mPendingPackages.clear();
+            }
+            if (params[0]) {
+                mCategoryManager.reloadPackageTiles(mContext, pendingPackages);
+            } else {
+                mCategoryManager.reloadAllCategories(mContext);
+            }
             mCategoryManager.updateCategoryFromDenylist(sTileDenylist);
             return getChangedCategories(params[0]);
         }
@@ -219,6 +234,19 @@ public class CategoryMixin implements LifecycleObserver {
     private class PackageReceiver extends BroadcastReceiver {
         @Override
         public void onReceive(Context context, Intent intent) {
+            final Uri data = intent.getData();
+            final String packageName = data != null ? data.getSchemeSpecificPart() : null;
+            if (packageName == null) {
+                updateCategories(false /* fromBroadcast */);
+                return;
+            }
+            final boolean componentsChanged =
+                    Intent.ACTION_PACKAGE_CHANGED.equals(intent.getAction());
+            synchronized (mPendingPackages) {
+                final Boolean pending = mPendingPackages.get(packageName);
+                mPendingPackages.put(packageName,
+                        componentsChanged || (pending != null && pending));
+            }
             updateCategories(true /* fromBroadcast */);
         }
     }
@@ -20,12 +20,15 @@ import android.annotation.NonNull;
 import android.annotation.Nullable;
 import android.annotation.XmlRes;
 import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.content.res.XmlResourceParser;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseArray;
 import android.util.TypedValue;
 import android.util.Xml;
 
@@ -105,6 +108,11 @@ public class PreferenceXmlParserUtils {
 
     private static final String ENTRIES_SEPARATOR = "|";
 
+    // Metadata of the preferences of each parsed xml in document order, valid for
+    // sMetadataConfiguration.
+    private static final SparseArray<PreferenceMetadata[]> sMetadataTables = new SparseArray<>();
+    private static Configuration sMetadataConfiguration;
+
     /**
      * Call {@link #extractMetadata(Context, int, int)} with {@link #METADATA_KEY} instead.
      */
@@ -181,84 +189,118 @@ public class PreferenceXmlParserUtils {
             Log.d(TAG, xmlResId + " is invalid.");
             return metadata;
         }
-        final XmlResourceParser parser = context.getResources().getXml(xmlResId);
-
-        int type;
-        while ((type = parser.next()) != XmlPullParser.END_DOCUMENT
-                && type != XmlPullParser.START_TAG) {
-            // Parse next until start tag is found
-        }
-        final int outerDepth = parser.getDepth();
+        final PreferenceMetadata[] table = getMetadataTable(context, xmlResId);
         final boolean hasPrefScreenFlag = hasFlag(flags, MetadataFlag.FLAG_INCLUDE_PREF_SCREEN);
-        do {
-            if (type != XmlPullParser.START_TAG) {
-                continue;
-            }
-            final String nodeName = parser.getName();
+        for (PreferenceMetadata preference : table) {
+            final String nodeName = preference.mType;
             if (!hasPrefScreenFlag && TextUtils.equals(PREF_SCREEN_TAG, nodeName)) {
                 continue;
             }
-            if (!SUPPORTED_PREF_TYPES.contains(nodeName) && !nodeName.endsWith("Preference")) {
-                continue;
-            }
             final Bundle preferenceMetadata = new Bundle();
-            final AttributeSet attrs = Xml.asAttributeSet(parser);
-
-            final TypedArray preferenceAttributes = context.obtainStyledAttributes(attrs,
-                    R.styleable.Preference);
-            TypedArray preferenceScreenAttributes = null;
-            if (hasPrefScreenFlag) {
-                preferenceScreenAttributes = context.obtainStyledAttributes(
-                        attrs, R.styleable.PreferenceScreen);
-            }
 
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_TYPE)) {
                 preferenceMetadata.putString(METADATA_PREF_TYPE, nodeName);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_KEY)) {
-                preferenceMetadata.putString(METADATA_KEY, getKey(preferenceAttributes));
+                preferenceMetadata.putString(METADATA_KEY, preference.mKey);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_CONTROLLER)) {
-                preferenceMetadata.putString(METADATA_CONTROLLER,
-                        getController(preferenceAttributes));
+                preferenceMetadata.putString(METADATA_CONTROLLER, preference.mController);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_TITLE)) {
-                preferenceMetadata.putString(METADATA_TITLE, getTitle(preferenceAttributes));
+                preferenceMetadata.putString(METADATA_TITLE, preference.mTitle);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_SUMMARY)) {
-                preferenceMetadata.putString(METADATA_SUMMARY, getSummary(preferenceAttributes));
+                preferenceMetadata.putString(METADATA_SUMMARY, preference.mSummary);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_ICON)) {
-                preferenceMetadata.putInt(METADATA_ICON, getIcon(preferenceAttributes));
+                preferenceMetadata.putInt(METADATA_ICON, preference.mIcon);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_KEYWORDS)) {
-                preferenceMetadata.putString(METADATA_KEYWORDS, getKeywords(preferenceAttributes));
+                preferenceMetadata.putString(METADATA_KEYWORDS, preference.mKeywords);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_SEARCHABLE)) {
-                preferenceMetadata.putBoolean(METADATA_SEARCHABLE,
-                        isSearchable(preferenceAttributes));
+                preferenceMetadata.putBoolean(METADATA_SEARCHABLE, preference.mSearchable);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_APPEND) && hasPrefScreenFlag) {
-                preferenceMetadata.putBoolean(METADATA_APPEND,
-                        isAppended(preferenceScreenAttributes));
+                preferenceMetadata.putBoolean(METADATA_APPEND, preference.mAppended);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_UNAVAILABLE_SLICE_SUBTITLE)) {
                 preferenceMetadata.putString(METADATA_UNAVAILABLE_SLICE_SUBTITLE,
-                        getUnavailableSliceSubtitle(preferenceAttributes));
+                        preference.mUnavailableSliceSubtitle);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_FOR_WORK)) {
-                preferenceMetadata.putBoolean(METADATA_FOR_WORK,
-                        isForWork(preferenceAttributes));
+                preferenceMetadata.putBoolean(METADATA_FOR_WORK, preference.mForWork);
             }
             metadata.add(preferenceMetadata);
-
-            preferenceAttributes.recycle();
-        } while ((type = parser.next()) != XmlPullParser.END_DOCUMENT
-                && (type != XmlPullParser.END_TAG || parser.getDepth() > outerDepth));
-        parser.close();
+        }
         return metadata;
     }
 
+    /**
+     * Returns the compiled metadata of {@code xmlResId}, parsing the xml the first time it is
+     * requested for the current configuration.
+     */
+    private static PreferenceMetadata[] getMetadataTable(Context context, @XmlRes int xmlResId)
+            throws IOException, XmlPullParserException {
+        final Configuration configuration =
+                new Configuration(context.getResources().getConfiguration());
+        synchronized (sMetadataTables) {
+            if (!isMetadataConfiguration(configuration)) {
+                sMetadataTables.clear();
+                sMetadataConfiguration = configuration;
+            }
+            final PreferenceMetadata[] table = sMetadataTables.get(xmlResId);
+            if (table != null) {
+                return table;
+            }
+        }
+        final PreferenceMetadata[] table = parseMetadataTable(context, xmlResId);
+        synchronized (sMetadataTables) {
+            // Drop the table if the configuration changed while parsing.
+            if (isMetadataConfiguration(configuration)) {
+                sMetadataTables.put(xmlResId, table);
+            }
+        }
+        return table;
+    }
+
+    private static boolean isMetadataConfiguration(Configuration configuration) {
+        // Window bounds differ between contexts but do not select other resources.
+        return sMetadataConfiguration != null && (sMetadataConfiguration.diff(configuration)
+                & ~ActivityInfo.CONFIG_WINDOW_CONFIGURATION) == 0;
+    }
+
+    private static PreferenceMetadata[] parseMetadataTable(Context context,
+            @XmlRes int xmlResId) throws IOException, XmlPullParserException {
+        final List<PreferenceMetadata> table = new ArrayList<>();
+        final XmlResourceParser parser = context.getResources().getXml(xmlResId);
+        try {
+            int type;
+            while ((type = parser.next()) != XmlPullParser.END_DOCUMENT
+                    && type != XmlPullParser.START_TAG) {
+                // Parse next until start tag is found
+            }
+            final int outerDepth = parser.getDepth();
+            do {
+                if (type != XmlPullParser.START_TAG) {
+                    continue;
+                }
+                final String nodeName = parser.getName();
+                if (!SUPPORTED_PREF_TYPES.contains(nodeName)
+                        && !nodeName.endsWith("Preference")) {
+                    continue;
+                }
+                table.add(new PreferenceMetadata(context, nodeName,
+                        Xml.asAttributeSet(parser)));
+            } while ((type = parser.next()) != XmlPullParser.END_DOCUMENT
+                    && (type != XmlPullParser.END_TAG || parser.getDepth() > outerDepth));
+        } finally {
+            parser.close();
+        }
+        return table.toArray(new PreferenceMetadata[0]);
+    }
+
     /**
      * Call {@link #extractMetadata(Context, int, int)} with a {@link MetadataFlag} instead.
      */
@@ -340,4 +382,39 @@ public class PreferenceXmlParserUtils {
         return styledAttributes.getBoolean(
                 R.styleable.Preference_forWork, false);
     }
-}
\ No newline at end of file
+
+    /** Metadata of one preference, compiled from its attributes. */
+    private static final class PreferenceMetadata {
+        final String mType;
+        final String mKey;
+        final String mController;
+        final String mTitle;
+        final String mSummary;
+        final int mIcon;
+        final String mKeywords;
+        final String mUnavailableSliceSubtitle;
+        final boolean mSearchable;
+        final boolean mAppended;
+        final boolean mForWork;
+
+        PreferenceMetadata(Context context, String type, AttributeSet attrs) {
+            final TypedArray preferenceAttributes = context.obtainStyledAttributes(attrs,
+                    R.styleable.Preference);
+            final TypedArray preferenceScreenAttributes = context.obtainStyledAttributes(
+                    attrs, R.styleable.PreferenceScreen);
+            mType = type;
+            mKey = getKey(preferenceAttributes);
+            mController = getController(preferenceAttributes);
+            mTitle = getTitle(preferenceAttributes);
+            mSummary = getSummary(preferenceAttributes);
+            mIcon = getIcon(preferenceAttributes);
+            mKeywords = getKeywords(preferenceAttributes);
+            mUnavailableSliceSubtitle = getUnavailableSliceSubtitle(preferenceAttributes);
+            mSearchable = isSearchable(preferenceAttributes);
+            mAppended = isAppended(preferenceScreenAttributes);
+            mForWork = isForWork(preferenceAttributes);
+            preferenceScreenAttributes.recycle();
+            preferenceAttributes.recycle();
+        }
+    }
+}
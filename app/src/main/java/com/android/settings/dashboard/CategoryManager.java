@@ -17,6 +17,7 @@ package com.android.settings.dashboard;
 
 import android.content.ComponentName;
 import android.content.Context;
+import android.content.pm.PackageManager;
 import android.util.ArrayMap;
 import android.util.ArraySet;
 import android.util.Log;
@@ -52,6 +53,12 @@ public class CategoryManager {
     // Tile cache (key: category key, value: category)
     private final Map<String, DashboardCategory> mCategoryByKeyMap;
 
+    // Tile index (key: package name, value: tiles of the package in mCategories)
+    private final Map<String, List<Tile>> mTilesByPackage;
+
+    // Package lastUpdateTime when its tiles were last reloaded on their own (key: package name)
+    private final Map<String, Long> mPackageUpdateTimes;
+
     private List<DashboardCategory> mCategories;
 
     public static CategoryManager get(Context context) {
@@ -64,6 +71,8 @@ public class CategoryManager {
     CategoryManager(Context context) {
         mTileByComponentCache = new ArrayMap<>();
         mCategoryByKeyMap = new ArrayMap<>();
+        mTilesByPackage = new ArrayMap<>();
+        mPackageUpdateTimes = new ArrayMap<>();
         mInterestingConfigChanges = new InterestingConfigChanges();
         mInterestingConfigChanges.applyNewConfig(context.getResources());
     }
@@ -86,6 +95,55 @@ public class CategoryManager {
         tryInitCategories(context, forceClearCache);
     }
 
+    /**
+     * Reloads only the tiles of the given packages, e.g. after package broadcasts, and updates
+     * the categories containing them. Falls back to a full reload if nothing was loaded yet or
+     * the configuration changed.
+     *
+     * @param packages package name => whether components of the package may have been enabled
+     *                 or disabled. Otherwise the package is skipped if its lastUpdateTime is the
+     *                 same as when its tiles were last reloaded.
+     */
+    public synchronized void reloadPackageTiles(Context context, Map<String, Boolean> packages) {
+        final boolean forceClearCache = mInterestingConfigChanges.applyNewConfig(
+                context.getResources());
+        if (mCategories == null || forceClearCache) {
+            mCategories = null;
+            tryInitCategories(context, forceClearCache);
+            return;
+        }
+
+        final Set<Tile> removedTiles = new ArraySet<>();
+        final List<Tile> addedTiles = new ArrayList<>();
+        for (Entry<String, Boolean> entry : packages.entrySet()) {
+            final String packageName = entry.getKey();
+            final long updateTime = getLastUpdateTime(context, packageName);
+            final Long reloadedUpdateTime = mPackageUpdateTimes.get(packageName);
+            if (!entry.getValue() && reloadedUpdateTime != null
+                    && reloadedUpdateTime == updateTime) {
+                // E.g. PACKAGE_REPLACED after PACKAGE_ADDED for the same update.
+                continue;
+            }
+            final List<Tile> oldTiles = mTilesByPackage.remove(packageName);
+            if (oldTiles != null) {
+                removedTiles.addAll(oldTiles);
+            }
+            // Recreate the package's tiles from its new component info.
+            mTileByComponentCache.values().removeIf(
+                    tile -> packageName.equals(tile.getPackageName()));
+            final List<Tile> newTiles = TileUtils.getTilesForPackage(context, packageName,
+                    mTileByComponentCache);
+            if (!newTiles.isEmpty()) {
+                mTilesByPackage.put(packageName, newTiles);
+                addedTiles.addAll(newTiles);
+            }
+            mPackageUpdateTimes.put(packageName, updateTime);
+        }
+        if (!removedTiles.isEmpty() || !addedTiles.isEmpty()) {
+            updateCategoriesForTiles(context, removedTiles, addedTiles);
+        }
+    }
+
     /**
      * Update category from deny list
      * @param tileDenylist
@@ -145,8 +203,11 @@ public class CategoryManager {
             }
             mCategoryByKeyMap.clear();
             mCategories = TileUtils.getCategories(context, mTileByComponentCache);
+            mTilesByPackage.clear();
+            mPackageUpdateTimes.clear();
             for (DashboardCategory category : mCategories) {
                 mCategoryByKeyMap.put(category.key, category);
+                indexTiles(category);
             }
             backwardCompatCleanupForCategory(mTileByComponentCache, mCategoryByKeyMap);
             sortCategories(context, mCategoryByKeyMap);
@@ -157,6 +218,87 @@ public class CategoryManager {
         }
     }
 
+    private void indexTiles(DashboardCategory category) {
+        for (int i = 0; i < category.getTilesCount(); i++) {
+            final Tile tile = category.getTile(i);
+            List<Tile> tiles = mTilesByPackage.get(tile.getPackageName());
+            if (tiles == null) {
+                tiles = new ArrayList<>();
+                mTilesByPackage.put(tile.getPackageName(), tiles);
+            }
+            tiles.add(tile);
+        }
+    }
+
+    /**
+     * Removes {@code removedTiles} from and adds {@code addedTiles} to the loaded categories, then
+     * applies the same cleanup as a full load to the categories that changed.
+     */
+    private void updateCategoriesForTiles(Context context, Set<Tile> removedTiles,
+            List<Tile> addedTiles) {
+        // Callers may still be iterating the current list.
+        final List<DashboardCategory> categories = new ArrayList<>(mCategories);
+        final Set<String> changedKeys = new ArraySet<>();
+        for (DashboardCategory category : mCategoryByKeyMap.values()) {
+            for (int i = category.getTilesCount() - 1; i >= 0; i--) {
+                if (removedTiles.contains(category.getTile(i))) {
+                    category.removeTile(i);
+                    changedKeys.add(category.key);
+                }
+            }
+        }
+
+        final Map<Pair<String, String>, Tile> addedTileByComponent = new ArrayMap<>();
+        for (Entry<Pair<String, String>, Tile> entry : mTileByComponentCache.entrySet()) {
+            if (addedTiles.contains(entry.getValue())) {
+                addedTileByComponent.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Tile tile : addedTiles) {
+            DashboardCategory category = mCategoryByKeyMap.get(tile.getCategory());
+            if (category == null) {
+                category = new DashboardCategory(tile.getCategory());
+                mCategoryByKeyMap.put(category.key, category);
+                categories.add(category);
+            }
+            category.addTile(tile);
+            changedKeys.add(category.key);
+        }
+        backwardCompatCleanupForCategory(addedTileByComponent, mCategoryByKeyMap);
+        for (Tile tile : addedTiles) {
+            // The tile may have been moved to a new category key.
+            changedKeys.add(tile.getCategory());
+        }
+
+        final Map<String, DashboardCategory> changedCategories = new ArrayMap<>();
+        for (String key : changedKeys) {
+            final DashboardCategory category = mCategoryByKeyMap.get(key);
+            if (category == null) {
+                continue;
+            }
+            if (category.getTilesCount() == 0) {
+                // A full load does not create empty categories either.
+                mCategoryByKeyMap.remove(key);
+                categories.remove(category);
+                continue;
+            }
+            changedCategories.put(key, category);
+        }
+        mCategories = categories;
+        sortCategories(context, changedCategories);
+        filterDuplicateTiles(changedCategories);
+    }
+
+    private static long getLastUpdateTime(Context context, String packageName) {
+        try {
+            return context.getPackageManager().getPackageInfo(packageName, 0 /* flags */)
+                    .lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            // The package was removed.
+            return 0;
+        }
+    }
+
     @VisibleForTesting
     synchronized void backwardCompatCleanupForCategory(
             Map<Pair<String, String>, Tile> tileByComponentCache,
@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import android.app.settings.SettingsEnums;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.core.AbstractPreferenceController;
+import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Updates the preference states of a {@link DashboardFragment}'s controllers, moving the
+ * {@link AbstractPreferenceController#isAvailable()} checks that were slow before off the main
+ * thread.
+ *
+ * <p>The cost of each controller's availability check is kept in a profile shared by all pages.
+ * Controllers without history or with cheap checks are updated inline, as before. The others are
+ * checked in the background; the states of those that finish within {@link #TIMEOUT_MS} are
+ * updated together in one main thread post, and any later ones as they finish. A controller whose
+ * check throws in the background is checked again on the main thread, and inline from then on.
+ *
+ * <p>All methods must be called on the main thread.
+ */
+class ControllerUpdateScheduler {
+
+    private static final String TAG = "ControllerUpdateSched";
+    private static final String PREF_FILE = "dashboard_controller_costs";
+
+    @VisibleForTesting
+    static final float SLOW_CONTROLLER_MS = 8f;
+    @VisibleForTesting
+    static final long TIMEOUT_MS = 300;
+    private static final int UPDATE_STATE_TIME_THRESHOLD_MS = 50;
+
+    /** Updates the preference of an available controller. */
+    interface StateUpdater {
+        void updateState(AbstractPreferenceController controller);
+    }
+
+    private final CostProfile mCosts;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final MetricsFeatureProvider mMetricsFeatureProvider;
+    private final int mMetricsCategory;
+    private int mGeneration;
+
+    ControllerUpdateScheduler(Context context, MetricsFeatureProvider metricsFeatureProvider,
+            int metricsCategory) {
+        mCosts = CostProfile.getInstance(context);
+        mMetricsFeatureProvider = metricsFeatureProvider;
+        mMetricsCategory = metricsCategory;
+    }
+
+    /** Updates the state of every available controller in {@code controllers}. */
+    void update(List<AbstractPreferenceController> controllers, StateUpdater updater) {
+        final int generation = ++mGeneration;
+        final List<AbstractPreferenceController> slowControllers = new ArrayList<>();
+        for (AbstractPreferenceController controller : controllers) {
+            final String name = controller.getClass().getName();
+            if (mCosts.isSlow(name)) {
+                slowControllers.add(controller);
+                continue;
+            }
+            final long startTime = SystemClock.elapsedRealtime();
+            final boolean available = controller.isAvailable();
+            mCosts.record(name, SystemClock.elapsedRealtime() - startTime);
+            if (available) {
+                updateState(controller, updater);
+            }
+        }
+        mCosts.persist();
+        if (slowControllers.isEmpty()) {
+            return;
+        }
+
+        final Batch batch = new Batch(generation, slowControllers.size(), updater);
+        for (AbstractPreferenceController controller : slowControllers) {
+            ThreadUtils.postOnBackgroundThread(() -> {
+                final long startTime = SystemClock.elapsedRealtime();
+                final boolean available;
+                try {
+                    available = controller.isAvailable();
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "isAvailable failed off the main thread in "
+                            + controller.getClass().getSimpleName(), e);
+                    mHandler.post(() -> batch.onCheckFailed(controller));
+                    return;
+                }
+                final long cost = SystemClock.elapsedRealtime() - startTime;
+                mHandler.post(() -> batch.onChecked(controller, available, cost));
+            });
+        }
+        mHandler.postDelayed(batch, TIMEOUT_MS);
+    }
+
+    /** Drops the results of background checks that have not been applied yet. */
+    void cancel() {
+        mGeneration++;
+    }
+
+    private void updateState(AbstractPreferenceController controller, StateUpdater updater) {
+        final long startTime = SystemClock.elapsedRealtime();
+        updater.updateState(controller);
+        final int elapsedTime = (int) (SystemClock.elapsedRealtime() - startTime);
+        if (elapsedTime > UPDATE_STATE_TIME_THRESHOLD_MS) {
+            Log.w(TAG, "The updateState took " + elapsedTime + " ms in Controller "
+                    + controller.getClass().getSimpleName());
+            if (mMetricsFeatureProvider != null) {
+                mMetricsFeatureProvider.action(SettingsEnums.PAGE_UNKNOWN,
+                        SettingsEnums.ACTION_CONTROLLER_UPDATE_STATE, mMetricsCategory,
+                        controller.getClass().getSimpleName(), elapsedTime);
+            }
+        }
+    }
+
+    /** Background checks of one {@link #update} call. Runs as the timeout callback. */
+    private class Batch implements Runnable {
+        private final int mBatchGeneration;
+        private final StateUpdater mUpdater;
+        private final List<AbstractPreferenceController> mAvailableControllers =
+                new ArrayList<>();
+        private int mRemaining;
+        private boolean mTimedOut;
+
+        Batch(int generation, int count, StateUpdater updater) {
+            mBatchGeneration = generation;
+            mRemaining = count;
+            mUpdater = updater;
+        }
+
+        void onChecked(AbstractPreferenceController controller, boolean available, long cost) {
+            mCosts.record(controller.getClass().getName(), cost);
+            onResult(controller, available);
+        }
+
+        /** Checks {@code controller} again on the main thread, where it may have to run. */
+        void onCheckFailed(AbstractPreferenceController controller) {
+            mCosts.pinInline(controller.getClass().getName());
+            onResult(controller, controller.isAvailable());
+        }
+
+        private void onResult(AbstractPreferenceController controller, boolean available) {
+            mRemaining--;
+            if (mRemaining == 0) {
+                mCosts.persist();
+            }
+            if (available) {
+                mAvailableControllers.add(controller);
+            }
+            if (mTimedOut) {
+                applyAvailable();
+            } else if (mRemaining == 0) {
+                mHandler.removeCallbacks(this);
+                applyAvailable();
+            }
+        }
+
+        @Override
+        public void run() {
+            Log.w(TAG, mRemaining + " controllers still checking after " + TIMEOUT_MS + " ms");
+            mTimedOut = true;
+            applyAvailable();
+        }
+
+        private void applyAvailable() {
+            // A newer update or cancel() supersedes these results.
+            if (mBatchGeneration == mGeneration) {
+                for (AbstractPreferenceController controller : mAvailableControllers) {
+                    updateState(controller, mUpdater);
+                }
+            }
+            mAvailableControllers.clear();
+        }
+    }
+
+    /**
+     * Costs of the availability checks of all controllers, in milliseconds. They are kept in
+     * memory and only written to disk when a controller becomes slow or fast again. All methods
+     * must be called on the main thread; the disk is only accessed in the background.
+     */
+    private static class CostProfile {
+        private static CostProfile sInstance;
+
+        private final Context mAppContext;
+        private final Map<String, Float> mCosts = new ArrayMap<>();
+        private final ArrayMap<String, Float> mPendingWrites = new ArrayMap<>();
+        // Controllers whose checks failed off the main thread; always checked inline.
+        private final ArraySet<String> mPinnedInline = new ArraySet<>();
+
+        static CostProfile getInstance(Context context) {
+            if (sInstance == null) {
+                sInstance = new CostProfile(context.getApplicationContext());
+            }
+            return sInstance;
+        }
+
+        private CostProfile(Context appContext) {
+            mAppContext = appContext;
+            // Until the profile is loaded, controllers are checked inline as if they were new.
+            ThreadUtils.postOnBackgroundThread(ThreadUtils.LANE_PREFETCH, () -> {
+                final Map<String, ?> stored = getSharedPreferences().getAll();
+                ThreadUtils.postOnMainThread(() -> {
+                    for (Map.Entry<String, ?> entry : stored.entrySet()) {
+                        if (entry.getValue() instanceof Float
+                                && !mCosts.containsKey(entry.getKey())) {
+                            mCosts.put(entry.getKey(), (Float) entry.getValue());
+                        }
+                    }
+                });
+            });
+        }
+
+        boolean isSlow(String name) {
+            if (mPinnedInline.contains(name)) {
+                return false;
+            }
+            final Float cost = mCosts.get(name);
+            return cost != null && cost >= SLOW_CONTROLLER_MS;
+        }
+
+        void pinInline(String name) {
+            mPinnedInline.add(name);
+        }
+
+        void record(String name, long cost) {
+            final Float previous = mCosts.get(name);
+            // Exponential moving average, so a single outlier does not move a controller for long.
+            final float average = previous != null ? (previous + cost) / 2 : cost;
+            mCosts.put(name, average);
+            final boolean wasSlow = previous != null && previous >= SLOW_CONTROLLER_MS;
+            if (wasSlow != average >= SLOW_CONTROLLER_MS) {
+                mPendingWrites.put(name, average);
+            }
+        }
+
+        /** Writes the costs of controllers that became slow or fast since the last call. */
+        void persist() {
+            if (mPendingWrites.isEmpty()) {
+                return;
+            }
+            final Map<String, Float> writes = new ArrayMap<>(mPendingWrites);
+            mPendingWrites.clear();
+            ThreadUtils.postOnBackgroundThread(ThreadUtils.LANE_MAINTENANCE, () -> {
+                final SharedPreferences.Editor editor = getSharedPreferences().edit();
+                for (Map.Entry<String, Float> entry : writes.entrySet()) {
+                    editor.putFloat(entry.getKey(), entry.getValue());
+                }
+                editor.apply();
+            });
+        }
+
+        private SharedPreferences getSharedPreferences() {
+            return mAppContext.getSharedPreferences(PREF_FILE, Context.MODE_PRIVATE);
+        }
+    }
+}
@@ -89,12 +89,14 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
     private final MetricsFeatureProvider mMetricsFeatureProvider;
     private final CategoryManager mCategoryManager;
     private final PackageManager mPackageManager;
+    private final TileDataFetcher mTileDataFetcher;
 
     public DashboardFeatureProviderImpl(Context context) {
         mContext = context.getApplicationContext();
         mCategoryManager = CategoryManager.get(context);
         mMetricsFeatureProvider = FeatureFactory.getFactory(context).getMetricsFeatureProvider();
         mPackageManager = context.getPackageManager();
+        mTileDataFetcher = new TileDataFetcher(mContext);
     }
 
     @Override
@@ -246,13 +248,13 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
     }
 
     private void refreshTitle(Uri uri, Preference preference) {
-        ThreadUtils.postOnBackgroundThread(() -> {
-            final Map<String, IContentProvider> providerMap = new ArrayMap<>();
+        mTileDataFetcher.fetch(uri, preference, providerMap -> {
             final String titleFromUri = TileUtils.getTextFromUri(
                     mContext, uri, providerMap, META_DATA_PREFERENCE_TITLE);
-            if (!TextUtils.equals(titleFromUri, preference.getTitle())) {
-                ThreadUtils.postOnMainThread(() -> preference.setTitle(titleFromUri));
+            if (TextUtils.equals(titleFromUri, preference.getTitle())) {
+                return null;
             }
+            return () -> preference.setTitle(titleFromUri);
         });
     }
 
@@ -275,13 +277,13 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
     }
 
     private void refreshSummary(Uri uri, Preference preference) {
-        ThreadUtils.postOnBackgroundThread(() -> {
-            final Map<String, IContentProvider> providerMap = new ArrayMap<>();
+        mTileDataFetcher.fetch(uri, preference, providerMap -> {
             final String summaryFromUri = TileUtils.getTextFromUri(
                     mContext, uri, providerMap, META_DATA_PREFERENCE_SUMMARY);
-            if (!TextUtils.equals(summaryFromUri, preference.getSummary())) {
-                ThreadUtils.postOnMainThread(() -> preference.setSummary(summaryFromUri));
+            if (TextUtils.equals(summaryFromUri, preference.getSummary())) {
+                return null;
             }
+            return () -> preference.setSummary(summaryFromUri);
         });
     }
 
@@ -328,14 +330,13 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
     }
 
     private void refreshSwitch(Uri uri, Preference preference) {
-        ThreadUtils.postOnBackgroundThread(() -> {
-            final Map<String, IContentProvider> providerMap = new ArrayMap<>();
+        mTileDataFetcher.fetch(uri, preference, providerMap -> {
             final boolean checked = TileUtils.getBooleanFromUri(mContext, uri, providerMap,
                     EXTRA_SWITCH_CHECKED_STATE);
-            ThreadUtils.postOnMainThread(() -> {
+            return () -> {
                 setSwitchChecked(preference, checked);
                 setSwitchEnabled(preference, true);
-            });
+            };
         });
     }
 
@@ -365,27 +366,26 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
             setPreferenceIcon(preference, tile, forceRoundedIcon, mContext.getPackageName(),
                     Icon.createWithResource(mContext, android.R.color.transparent));
 
-            ThreadUtils.postOnBackgroundThread(() -> {
-                final Intent intent = tile.getIntent();
-                String packageName = null;
-                if (!TextUtils.isEmpty(intent.getPackage())) {
-                    packageName = intent.getPackage();
-                } else if (intent.getComponent() != null) {
-                    packageName = intent.getComponent().getPackageName();
-                }
-                final Map<String, IContentProvider> providerMap = new ArrayMap<>();
-                final Uri uri = TileUtils.getCompleteUri(tile, META_DATA_PREFERENCE_ICON_URI,
-                        METHOD_GET_PROVIDER_ICON);
+            final Intent intent = tile.getIntent();
+            String packageName = null;
+            if (!TextUtils.isEmpty(intent.getPackage())) {
+                packageName = intent.getPackage();
+            } else if (intent.getComponent() != null) {
+                packageName = intent.getComponent().getPackageName();
+            }
+            final String iconPackageName = packageName;
+            final Uri uri = TileUtils.getCompleteUri(tile, META_DATA_PREFERENCE_ICON_URI,
+                    METHOD_GET_PROVIDER_ICON);
+            mTileDataFetcher.fetch(uri, preference, providerMap -> {
                 final Pair<String, Integer> iconInfo = TileUtils.getIconFromUri(
-                        mContext, packageName, uri, providerMap);
+                        mContext, iconPackageName, uri, providerMap);
                 if (iconInfo == null) {
                     Log.w(TAG, "Failed to get icon from uri " + uri);
-                    return;
+                    return null;
                 }
                 final Icon icon = Icon.createWithResource(iconInfo.first, iconInfo.second);
-                ThreadUtils.postOnMainThread(() -> {
-                    setPreferenceIcon(preference, tile, forceRoundedIcon, iconInfo.first, icon);
-                });
+                return () -> setPreferenceIcon(preference, tile, forceRoundedIcon, iconInfo.first,
+                        icon);
             });
             return;
         }
@@ -47,7 +47,6 @@ import com.android.settingslib.drawer.DashboardCategory;
 import com.android.settingslib.drawer.ProviderTile;
 import com.android.settingslib.drawer.Tile;
 import com.android.settingslib.search.Indexable;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -56,7 +55,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
 
 /**
  * Base fragment for dashboard style UI containing a list of static and dynamic setting items.
@@ -79,10 +77,13 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     private DashboardTilePlaceholderPreferenceController mPlaceholderPreferenceController;
     private boolean mListeningToCategoryChange;
     private List<String> mSuppressInjectedTileKeys;
+    private ControllerUpdateScheduler mControllerUpdateScheduler;
 
     @Override
     public void onAttach(Context context) {
         super.onAttach(context);
+        mControllerUpdateScheduler = new ControllerUpdateScheduler(context,
+                mMetricsFeatureProvider, getMetricsCategory());
         mSuppressInjectedTileKeys = Arrays.asList(context.getResources().getStringArray(
                 R.array.config_suppress_injected_tile_keys));
         mDashboardFeatureProvider = FeatureFactory.getFactory(context).
@@ -240,6 +241,8 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     @Override
     public void onStop() {
         super.onStop();
+        // States are updated again on resume.
+        mControllerUpdateScheduler.cancel();
         unregisterDynamicDataObservers(new ArrayList<>(mRegisteredObservers));
         if (mListeningToCategoryChange) {
             final Activity activity = getActivity();
@@ -340,11 +343,12 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     }
 
     /**
-     * @return {@code true} if the underlying controllers should be executed in parallel.
-     * Override this function to enable/disable the behavior.
+     * @return {@code true} if the underlying controllers should be executed in parallel, see
+     * {@link #updatePreferenceStatesInParallel()}. Override this function to disable the behavior
+     * if the fragment relies on all states being updated synchronously.
      */
     protected boolean isParalleledControllers() {
-        return false;
+        return true;
     }
 
     /**
@@ -358,6 +362,10 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
      * Update state of each preference managed by PreferenceController.
      */
     protected void updatePreferenceStates() {
+        if (isParalleledControllers() && mControllerUpdateScheduler != null) {
+            updatePreferenceStatesInParallel();
+            return;
+        }
         final PreferenceScreen screen = getPreferenceScreen();
         Collection<List<AbstractPreferenceController>> controllerLists =
                 mPreferenceControllers.values();
@@ -366,53 +374,41 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                 if (!controller.isAvailable()) {
                     continue;
                 }
-
-                final String key = controller.getPreferenceKey();
-                if (TextUtils.isEmpty(key)) {
-                    Log.d(TAG, String.format("Preference key is %s in Controller %s",
-                            key, controller.getClass().getSimpleName()));
-                    continue;
-                }
-
-                final Preference preference = screen.findPreference(key);
-                if (preference == null) {
-                    Log.d(TAG, String.format("Cannot find preference with key %s in Controller %s",
-                            key, controller.getClass().getSimpleName()));
-                    continue;
-                }
-                controller.updateState(preference);
+                updateControllerState(screen, controller);
             }
         }
     }
 
     /**
-     * Use parallel method to update state of each preference managed by PreferenceController.
+     * Update state of each preference managed by PreferenceController, checking the availability
+     * of controllers that were slow before in the background. See
+     * {@link ControllerUpdateScheduler}.
      */
     @VisibleForTesting
-    // To use this parallel approach will cause the side effect of the UI flicker. Such as
-    // the thumb sliding of the toggle button.
     void updatePreferenceStatesInParallel() {
         final PreferenceScreen screen = getPreferenceScreen();
-        final Collection<List<AbstractPreferenceController>> controllerLists =
-                mPreferenceControllers.values();
-        final List<ControllerFutureTask> taskList = new ArrayList<>();
-        for (List<AbstractPreferenceController> controllerList : controllerLists) {
-            for (AbstractPreferenceController controller : controllerList) {
-                final ControllerFutureTask task = new ControllerFutureTask(
-                        new ControllerTask(controller, screen, mMetricsFeatureProvider,
-                                getMetricsCategory()), null /* result */);
-                taskList.add(task);
-                ThreadUtils.postOnBackgroundThread(task);
-            }
+        final List<AbstractPreferenceController> controllers = new ArrayList<>();
+        mPreferenceControllers.values().forEach(controllers::addAll);
+        mControllerUpdateScheduler.update(controllers,
+                controller -> updateControllerState(screen, controller));
+    }
+
+    private void updateControllerState(PreferenceScreen screen,
+            AbstractPreferenceController controller) {
+        final String key = controller.getPreferenceKey();
+        if (TextUtils.isEmpty(key)) {
+            Log.d(TAG, String.format("Preference key is %s in Controller %s",
+                    key, controller.getClass().getSimpleName()));
+            return;
         }
 
-        for (ControllerFutureTask task : taskList) {
-            try {
-                task.get();
-            } catch (InterruptedException | ExecutionException e) {
-                Log.w(TAG, task.getController().getPreferenceKey() + " " + e.getMessage());
-            }
+        final Preference preference = screen.findPreference(key);
+        if (preference == null) {
+            Log.d(TAG, String.format("Cannot find preference with key %s in Controller %s",
+                    key, controller.getClass().getSimpleName()));
+            return;
         }
+        controller.updateState(preference);
     }
 
     /**
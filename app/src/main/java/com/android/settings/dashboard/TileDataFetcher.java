@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import android.content.Context;
+import android.content.IContentProvider;
+import android.net.Uri;
+import android.util.ArrayMap;
+import android.util.Log;
+import android.util.Pair;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fetches the dynamic data of tiles (titles, summaries, switch states and icons) from their
+ * content providers in batches.
+ *
+ * <p>Requests made while the main thread binds one frame are queued together, and a repeated
+ * request for the same uri and target replaces the queued one. Each batch runs one background
+ * job per authority that acquires the provider once for all of its calls. The results of the
+ * authorities that answer within {@link #AUTHORITY_TIMEOUT_MS} are applied together in a single
+ * main thread post, so one slow provider does not hold back the others. Each later authority is
+ * applied in a follow-up post when it finishes.
+ */
+class TileDataFetcher {
+
+    private static final String TAG = "TileDataFetcher";
+
+    @VisibleForTesting
+    static final long AUTHORITY_TIMEOUT_MS = 300;
+
+    /** Loads data of a tile in the background. */
+    interface Request {
+        /**
+         * @param providerMap Maps URI authorities to the providers acquired for this batch
+         * @return the update to apply on the main thread, or null if there is nothing to apply
+         */
+        Runnable load(Map<String, IContentProvider> providerMap);
+    }
+
+    private final Context mContext;
+
+    // Requests of the next batch (key: <uri, target>)
+    private final Map<Pair<Uri, Object>, Request> mPendingRequests = new LinkedHashMap<>();
+    private boolean mFlushScheduled;
+
+    TileDataFetcher(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Queues {@code request} for the next batch.
+     *
+     * @param uri    the uri the request calls
+     * @param target the object the result is applied to, e.g. a preference
+     */
+    void fetch(Uri uri, Object target, Request request) {
+        synchronized (mPendingRequests) {
+            mPendingRequests.put(Pair.create(uri, target), request);
+            if (mFlushScheduled) {
+                return;
+            }
+            mFlushScheduled = true;
+        }
+        ThreadUtils.postOnMainThread(this::flush);
+    }
+
+    private void flush() {
+        final Map<String, List<Request>> requestsByAuthority = new ArrayMap<>();
+        synchronized (mPendingRequests) {
+            mFlushScheduled = false;
+            for (Map.Entry<Pair<Uri, Object>, Request> entry : mPendingRequests.entrySet()) {
+                final Uri uri = entry.getKey().first;
+                final String authority = uri != null ? uri.getAuthority() : null;
+                List<Request> requests = requestsByAuthority.get(authority);
+                if (requests == null) {
+                    requests = new ArrayList<>();
+                    requestsByAuthority.put(authority, requests);
+                }
+                requests.add(entry.getValue());
+            }
+            mPendingRequests.clear();
+        }
+        if (requestsByAuthority.isEmpty()) {
+            return;
+        }
+
+        final Batch batch = new Batch(requestsByAuthority.size());
+        for (List<Request> requests : requestsByAuthority.values()) {
+            ThreadUtils.postOnBackgroundThread(() -> {
+                final List<Runnable> results = loadAll(requests);
+                ThreadUtils.postOnMainThread(() -> batch.onLoaded(results));
+            });
+        }
+        ThreadUtils.getUiThreadHandler().postDelayed(batch, AUTHORITY_TIMEOUT_MS);
+    }
+
+    private List<Runnable> loadAll(List<Request> requests) {
+        final Map<String, IContentProvider> providerMap = new ArrayMap<>();
+        final List<Runnable> results = new ArrayList<>();
+        try {
+            for (Request request : requests) {
+                try {
+                    final Runnable update = request.load(providerMap);
+                    if (update != null) {
+                        results.add(update);
+                    }
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Failed to load tile data", e);
+                }
+            }
+        } finally {
+            for (IContentProvider provider : providerMap.values()) {
+                if (provider != null) {
+                    mContext.getContentResolver().releaseUnstableProvider(provider);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Results of the authorities of one batch. Runs as the timeout callback. Only accessed on the
+     * main thread.
+     */
+    private static class Batch implements Runnable {
+        private final List<Runnable> mUpdates = new ArrayList<>();
+        private int mRemaining;
+        private boolean mTimedOut;
+
+        Batch(int authorityCount) {
+            mRemaining = authorityCount;
+        }
+
+        void onLoaded(List<Runnable> results) {
+            mRemaining--;
+            if (mTimedOut) {
+                // A late authority, applied as a follow-up.
+                results.forEach(Runnable::run);
+                return;
+            }
+            mUpdates.addAll(results);
+            if (mRemaining == 0) {
+                ThreadUtils.getUiThreadHandler().removeCallbacks(this);
+                applyUpdates();
+            }
+        }
+
+        @Override
+        public void run() {
+            Log.w(TAG, mRemaining + " authorities still loading after " + AUTHORITY_TIMEOUT_MS
+                    + " ms");
+            mTimedOut = true;
+            applyUpdates();
+        }
+
+        private void applyUpdates() {
+            mUpdates.forEach(Runnable::run);
+            mUpdates.clear();
+        }
+    }
+}
@@ -19,6 +19,8 @@ import android.os.BatteryConsumer;
 import android.util.Log;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
 /** A container class to carry data from {@link ContentValues}. */
 public class BatteryHistEntry {
@@ -95,25 +97,34 @@ public class BatteryHistEntry {
         mBatteryHealth = getInteger(values, KEY_BATTERY_HEALTH);
     }
 
+    /**
+     * Creates an entry from the current row of {@code cursor}. Use {@link CursorReader} to read
+     * many rows.
+     */
     public BatteryHistEntry(Cursor cursor) {
-        mUid = getLong(cursor, KEY_UID);
-        mUserId = getLong(cursor, KEY_USER_ID);
-        mAppLabel = getString(cursor, KEY_APP_LABEL);
-        mPackageName = getString(cursor, KEY_PACKAGE_NAME);
-        mIsHidden = getBoolean(cursor, KEY_IS_HIDDEN);
-        mBootTimestamp = getLong(cursor, KEY_BOOT_TIMESTAMP);
-        mTimestamp = getLong(cursor, KEY_TIMESTAMP);
-        mZoneId = getString(cursor, KEY_ZONE_ID);
-        mTotalPower = getDouble(cursor, KEY_TOTAL_POWER);
-        mConsumePower = getDouble(cursor, KEY_CONSUME_POWER);
-        mPercentOfTotal = getDouble(cursor, KEY_PERCENT_OF_TOTAL);
-        mForegroundUsageTimeInMs = getLong(cursor, KEY_FOREGROUND_USAGE_TIME);
-        mBackgroundUsageTimeInMs = getLong(cursor, KEY_BACKGROUND_USAGE_TIME);
-        mDrainType = getInteger(cursor, KEY_DRAIN_TYPE);
-        mConsumerType = getInteger(cursor, KEY_CONSUMER_TYPE);
-        mBatteryLevel = getInteger(cursor, KEY_BATTERY_LEVEL);
-        mBatteryStatus = getInteger(cursor, KEY_BATTERY_STATUS);
-        mBatteryHealth = getInteger(cursor, KEY_BATTERY_HEALTH);
+        this(new CursorReader(cursor));
+    }
+
+    private BatteryHistEntry(CursorReader reader) {
+        final Cursor cursor = reader.mCursor;
+        mUid = getLong(cursor, reader.mUidIndex);
+        mUserId = getLong(cursor, reader.mUserIdIndex);
+        mAppLabel = getString(cursor, reader.mAppLabelIndex);
+        mPackageName = getString(cursor, reader.mPackageNameIndex);
+        mIsHidden = getBoolean(cursor, reader.mIsHiddenIndex);
+        mBootTimestamp = getLong(cursor, reader.mBootTimestampIndex);
+        mTimestamp = getLong(cursor, reader.mTimestampIndex);
+        mZoneId = getString(cursor, reader.mZoneIdIndex);
+        mTotalPower = getDouble(cursor, reader.mTotalPowerIndex);
+        mConsumePower = getDouble(cursor, reader.mConsumePowerIndex);
+        mPercentOfTotal = getDouble(cursor, reader.mPercentOfTotalIndex);
+        mForegroundUsageTimeInMs = getLong(cursor, reader.mForegroundUsageTimeIndex);
+        mBackgroundUsageTimeInMs = getLong(cursor, reader.mBackgroundUsageTimeIndex);
+        mDrainType = getInteger(cursor, reader.mDrainTypeIndex);
+        mConsumerType = getInteger(cursor, reader.mConsumerTypeIndex);
+        mBatteryLevel = getInteger(cursor, reader.mBatteryLevelIndex);
+        mBatteryStatus = getInteger(cursor, reader.mBatteryStatusIndex);
+        mBatteryHealth = getInteger(cursor, reader.mBatteryHealthIndex);
     }
 
     private BatteryHistEntry(
@@ -212,8 +223,7 @@ public class BatteryHistEntry {
         return 0;
     }
 
-    private int getInteger(Cursor cursor, String key) {
-        final int columnIndex = cursor.getColumnIndex(key);
+    private int getInteger(Cursor cursor, int columnIndex) {
         if (columnIndex >= 0) {
             return cursor.getInt(columnIndex);
         }
@@ -229,8 +239,7 @@ public class BatteryHistEntry {
         return 0L;
     }
 
-    private long getLong(Cursor cursor, String key) {
-        final int columnIndex = cursor.getColumnIndex(key);
+    private long getLong(Cursor cursor, int columnIndex) {
         if (columnIndex >= 0) {
             return cursor.getLong(columnIndex);
         }
@@ -246,8 +255,7 @@ public class BatteryHistEntry {
         return 0f;
     }
 
-    private double getDouble(Cursor cursor, String key) {
-        final int columnIndex = cursor.getColumnIndex(key);
+    private double getDouble(Cursor cursor, int columnIndex) {
         if (columnIndex >= 0) {
             return cursor.getDouble(columnIndex);
         }
@@ -263,8 +271,7 @@ public class BatteryHistEntry {
         return null;
     }
 
-    private String getString(Cursor cursor, String key) {
-        final int columnIndex = cursor.getColumnIndex(key);
+    private String getString(Cursor cursor, int columnIndex) {
         if (columnIndex >= 0) {
             return cursor.getString(columnIndex);
         }
@@ -280,8 +287,7 @@ public class BatteryHistEntry {
         return false;
     }
 
-    private boolean getBoolean(Cursor cursor, String key) {
-        final int columnIndex = cursor.getColumnIndex(key);
+    private boolean getBoolean(Cursor cursor, int columnIndex) {
         if (columnIndex >= 0) {
             // Use value == 1 to represent boolean value in the database.
             return cursor.getInt(columnIndex) == 1;
@@ -345,4 +351,82 @@ public class BatteryHistEntry {
     private static double interpolate(double v1, double v2, double ratio) {
         return v1 + ratio * (v2 - v1);
     }
+
+    /**
+     * Reads {@link BatteryHistEntry} rows from a {@link Cursor}, resolving the column indices once
+     * for all rows instead of once per field and row.
+     */
+    public static final class CursorReader {
+        private final Cursor mCursor;
+        private final int mUidIndex;
+        private final int mUserIdIndex;
+        private final int mAppLabelIndex;
+        private final int mPackageNameIndex;
+        private final int mIsHiddenIndex;
+        private final int mBootTimestampIndex;
+        private final int mTimestampIndex;
+        private final int mZoneIdIndex;
+        private final int mTotalPowerIndex;
+        private final int mConsumePowerIndex;
+        private final int mPercentOfTotalIndex;
+        private final int mForegroundUsageTimeIndex;
+        private final int mBackgroundUsageTimeIndex;
+        private final int mDrainTypeIndex;
+        private final int mConsumerTypeIndex;
+        private final int mBatteryLevelIndex;
+        private final int mBatteryStatusIndex;
+        private final int mBatteryHealthIndex;
+
+        public CursorReader(Cursor cursor) {
+            mCursor = cursor;
+            mUidIndex = cursor.getColumnIndex(KEY_UID);
+            mUserIdIndex = cursor.getColumnIndex(KEY_USER_ID);
+            mAppLabelIndex = cursor.getColumnIndex(KEY_APP_LABEL);
+            mPackageNameIndex = cursor.getColumnIndex(KEY_PACKAGE_NAME);
+            mIsHiddenIndex = cursor.getColumnIndex(KEY_IS_HIDDEN);
+            mBootTimestampIndex = cursor.getColumnIndex(KEY_BOOT_TIMESTAMP);
+            mTimestampIndex = cursor.getColumnIndex(KEY_TIMESTAMP);
+            mZoneIdIndex = cursor.getColumnIndex(KEY_ZONE_ID);
+            mTotalPowerIndex = cursor.getColumnIndex(KEY_TOTAL_POWER);
+            mConsumePowerIndex = cursor.getColumnIndex(KEY_CONSUME_POWER);
+            mPercentOfTotalIndex = cursor.getColumnIndex(KEY_PERCENT_OF_TOTAL);
+            mForegroundUsageTimeIndex = cursor.getColumnIndex(KEY_FOREGROUND_USAGE_TIME);
+            mBackgroundUsageTimeIndex = cursor.getColumnIndex(KEY_BACKGROUND_USAGE_TIME);
+            mDrainTypeIndex = cursor.getColumnIndex(KEY_DRAIN_TYPE);
+            mConsumerTypeIndex = cursor.getColumnIndex(KEY_CONSUMER_TYPE);
+            mBatteryLevelIndex = cursor.getColumnIndex(KEY_BATTERY_LEVEL);
+            mBatteryStatusIndex = cursor.getColumnIndex(KEY_BATTERY_STATUS);
+            mBatteryHealthIndex = cursor.getColumnIndex(KEY_BATTERY_HEALTH);
+        }
+
+        /** Creates an entry from the current row of the cursor. */
+        public BatteryHistEntry read() {
+            return new BatteryHistEntry(this);
+        }
+
+        /**
+         * Reads the remaining rows of the cursor, grouped by {@link BatteryHistEntry#mTimestamp}
+         * and then by {@link BatteryHistEntry#getKey()}, in the form returned by
+         * {@link PowerUsageFeatureProvider#getBatteryHistory(android.content.Context)}.
+         */
+        public Map<Long, Map<String, BatteryHistEntry>> readAll() {
+            final Map<Long, Map<String, BatteryHistEntry>> resultMap = new HashMap<>();
+            // Rows are usually sorted by time, so the map of the previous row is reused.
+            long lastTimestamp = 0;
+            Map<String, BatteryHistEntry> lastSlot = null;
+            while (mCursor.moveToNext()) {
+                final BatteryHistEntry entry = read();
+                if (lastSlot == null || entry.mTimestamp != lastTimestamp) {
+                    lastTimestamp = entry.mTimestamp;
+                    lastSlot = resultMap.get(lastTimestamp);
+                    if (lastSlot == null) {
+                        lastSlot = new HashMap<>();
+                        resultMap.put(lastTimestamp, lastSlot);
+                    }
+                }
+                lastSlot.put(entry.getKey(), entry);
+            }
+            return resultMap;
+        }
+    }
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge;
+
+import android.os.BatteryStats.HistoryItem;
+
+import com.android.internal.os.BatteryStatsHistoryIterator;
+
+import java.util.Arrays;
+
+/**
+ * Battery history decoded once into primitive arrays, which can be replayed to any number of
+ * {@link BatteryInfo.BatteryDataParser}s.
+ *
+ * <p>Only the fields of {@link HistoryItem} that the parsers read are kept: the command, the
+ * elapsed and wall clock times, the battery level and the state flags.
+ */
+class BatteryHistoryTimeline {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int mSize;
+    private byte[] mCmds = new byte[INITIAL_CAPACITY];
+    private long[] mTimes = new long[INITIAL_CAPACITY];
+    private long[] mCurrentTimes = new long[INITIAL_CAPACITY];
+    private byte[] mBatteryLevels = new byte[INITIAL_CAPACITY];
+    private int[] mStates = new int[INITIAL_CAPACITY];
+    private int[] mStates2 = new int[INITIAL_CAPACITY];
+
+    private final long mStartWalltime;
+    private final long mEndWalltime;
+    private final long mHistoryStart;
+    private final long mLastRealtime;
+    // Number of records up to and including the last data point.
+    private final int mInterestingCount;
+
+    /** Decodes all records of {@code iterator} and computes the time bounds of the history. */
+    BatteryHistoryTimeline(BatteryStatsHistoryIterator iterator) {
+        long startWalltime = 0;
+        long historyStart = 0;
+        long historyEnd = 0;
+        long lastWallTime = 0;
+        long lastRealtime = 0;
+        int lastInteresting = 0;
+        int pos = 0;
+        boolean first = true;
+        final HistoryItem rec = new HistoryItem();
+        while (iterator.next(rec)) {
+            append(rec);
+            pos++;
+            if (first) {
+                first = false;
+                historyStart = rec.time;
+            }
+            if (rec.cmd == HistoryItem.CMD_CURRENT_TIME
+                    || rec.cmd == HistoryItem.CMD_RESET) {
+                // If there is a ridiculously large jump in time, then we won't be
+                // able to create a good chart with that data, so just ignore the
+                // times we got before and pretend like our data extends back from
+                // the time we have now.
+                // Also, if we are getting a time change and we are less than 5 minutes
+                // since the start of the history real time, then also use this new
+                // time to compute the base time, since whatever time we had before is
+                // pretty much just noise.
+                if (rec.currentTime > (lastWallTime + (180 * 24 * 60 * 60 * 1000L))
+                        || rec.time < (historyStart + (5 * 60 * 1000L))) {
+                    startWalltime = 0;
+                }
+                lastWallTime = rec.currentTime;
+                lastRealtime = rec.time;
+                if (startWalltime == 0) {
+                    startWalltime = lastWallTime - (lastRealtime - historyStart);
+                }
+            }
+            if (rec.isDeltaData()) {
+                lastInteresting = pos;
+                historyEnd = rec.time;
+            }
+        }
+
+        mStartWalltime = startWalltime;
+        mEndWalltime = lastWallTime + historyEnd - lastRealtime;
+        mHistoryStart = historyStart;
+        mLastRealtime = lastRealtime;
+        mInterestingCount = lastInteresting;
+    }
+
+    /** Sends the decoded history to {@code parsers}, as a walk over the history would. */
+    void replay(BatteryInfo.BatteryDataParser... parsers) {
+        for (int j = 0; j < parsers.length; j++) {
+            parsers[j].onParsingStarted(mStartWalltime, mEndWalltime);
+        }
+
+        if (mEndWalltime > mStartWalltime) {
+            final HistoryItem rec = new HistoryItem();
+            long curWalltime = 0;
+            long lastRealtime = mLastRealtime;
+            for (int i = 0; i < mInterestingCount; i++) {
+                read(i, rec);
+                if (rec.isDeltaData()) {
+                    curWalltime += rec.time - lastRealtime;
+                    lastRealtime = rec.time;
+                    long x = (curWalltime - mStartWalltime);
+                    if (x < 0) {
+                        x = 0;
+                    }
+                    for (int j = 0; j < parsers.length; j++) {
+                        parsers[j].onDataPoint(x, rec);
+                    }
+                } else {
+                    long lastWalltime = curWalltime;
+                    if (rec.cmd == HistoryItem.CMD_CURRENT_TIME
+                            || rec.cmd == HistoryItem.CMD_RESET) {
+                        if (rec.currentTime >= mStartWalltime) {
+                            curWalltime = rec.currentTime;
+                        } else {
+                            curWalltime = mStartWalltime + (rec.time - mHistoryStart);
+                        }
+                        lastRealtime = rec.time;
+                    }
+
+                    if (rec.cmd != HistoryItem.CMD_OVERFLOW
+                            && (rec.cmd != HistoryItem.CMD_CURRENT_TIME
+                            || Math.abs(lastWalltime - curWalltime) > (60 * 60 * 1000))) {
+                        for (int j = 0; j < parsers.length; j++) {
+                            parsers[j].onDataGap();
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int j = 0; j < parsers.length; j++) {
+            parsers[j].onParsingDone();
+        }
+    }
+
+    private void append(HistoryItem rec) {
+        if (mSize == mCmds.length) {
+            final int capacity = mSize * 2;
+            mCmds = Arrays.copyOf(mCmds, capacity);
+            mTimes = Arrays.copyOf(mTimes, capacity);
+            mCurrentTimes = Arrays.copyOf(mCurrentTimes, capacity);
+            mBatteryLevels = Arrays.copyOf(mBatteryLevels, capacity);
+            mStates = Arrays.copyOf(mStates, capacity);
+            mStates2 = Arrays.copyOf(mStates2, capacity);
+        }
+        mCmds[mSize] = rec.cmd;
+        mTimes[mSize] = rec.time;
+        mCurrentTimes[mSize] = rec.currentTime;
+        mBatteryLevels[mSize] = rec.batteryLevel;
+        mStates[mSize] = rec.states;
+        mStates2[mSize] = rec.states2;
+        mSize++;
+    }
+
+    private void read(int index, HistoryItem rec) {
+        rec.cmd = mCmds[index];
+        rec.time = mTimes[index];
+        rec.currentTime = mCurrentTimes[index];
+        rec.batteryLevel = mBatteryLevels[index];
+        rec.states = mStates[index];
+        rec.states2 = mStates2[index];
+    }
+}
@@ -32,13 +32,13 @@ import java.lang.annotation.RetentionPolicy;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
 import java.util.TimeZone;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /** A utility class to convert data into another types. */
 public final class ConvertUtils {
@@ -141,7 +141,10 @@ public final class ConvertUtils {
         return DateFormat.format(pattern, timestamp).toString().toLowerCase(locale);
     }
 
-    /** Gets indexed battery usage data for each corresponding time slot. */
+    /**
+     * Gets indexed battery usage data for each corresponding time slot, and the aggregated data
+     * of all slots at {@link BatteryChartView#SELECTED_INDEX_ALL}.
+     */
     public static Map<Integer, List<BatteryDiffEntry>> getIndexedUsageMap(
             final Context context,
             final int timeSlotSize,
@@ -151,151 +154,176 @@ public final class ConvertUtils {
         if (batteryHistoryMap == null || batteryHistoryMap.isEmpty()) {
             return new HashMap<>();
         }
+        // Time slots are independent of each other, so they are computed in parallel.
+        final List<List<BatteryDiffEntry>> slotEntryLists = IntStream.range(0, timeSlotSize)
+            .parallel()
+            .mapToObj(index ->
+                getSlotUsageList(context, index, batteryHistoryKeys, batteryHistoryMap))
+            .collect(Collectors.toList());
+
         final Map<Integer, List<BatteryDiffEntry>> resultMap = new HashMap<>();
-        // Each time slot usage diff data =
-        //     Math.abs(timestamp[i+2] data - timestamp[i+1] data) +
-        //     Math.abs(timestamp[i+1] data - timestamp[i] data);
-        // since we want to aggregate every two hours data into a single time slot.
-        final int timestampStride = 2;
+        // Aggregates the usage of all time slots per key while collecting them in order.
+        final Map<String, UsageAccumulator> allUsageMap = new HashMap<>();
+        double allConsumePower = 0.0;
         for (int index = 0; index < timeSlotSize; index++) {
-            final Long currentTimestamp =
-                Long.valueOf(batteryHistoryKeys[index * timestampStride]);
-            final Long nextTimestamp =
-                Long.valueOf(batteryHistoryKeys[index * timestampStride + 1]);
-            final Long nextTwoTimestamp =
-                Long.valueOf(batteryHistoryKeys[index * timestampStride + 2]);
-            // Fetches BatteryHistEntry data from corresponding time slot.
-            final Map<String, BatteryHistEntry> currentBatteryHistMap =
-                batteryHistoryMap.getOrDefault(currentTimestamp, EMPTY_BATTERY_MAP);
-            final Map<String, BatteryHistEntry> nextBatteryHistMap =
-                batteryHistoryMap.getOrDefault(nextTimestamp, EMPTY_BATTERY_MAP);
-            final Map<String, BatteryHistEntry> nextTwoBatteryHistMap =
-                batteryHistoryMap.getOrDefault(nextTwoTimestamp, EMPTY_BATTERY_MAP);
-            // We should not get the empty list since we have at least one fake data to record
-            // the battery level and status in each time slot, the empty list is used to
-            // represent there is no enough data to apply interpolation arithmetic.
-            if (currentBatteryHistMap.isEmpty()
-                    || nextBatteryHistMap.isEmpty()
-                    || nextTwoBatteryHistMap.isEmpty()) {
-                resultMap.put(Integer.valueOf(index), new ArrayList<BatteryDiffEntry>());
-                continue;
-            }
-
-            // Collects all keys in these three time slot records as all populations.
-            final Set<String> allBatteryHistEntryKeys = new HashSet<>();
-            allBatteryHistEntryKeys.addAll(currentBatteryHistMap.keySet());
-            allBatteryHistEntryKeys.addAll(nextBatteryHistMap.keySet());
-            allBatteryHistEntryKeys.addAll(nextTwoBatteryHistMap.keySet());
-
-            double totalConsumePower = 0.0;
-            final List<BatteryDiffEntry> batteryDiffEntryList = new ArrayList<>();
-            // Adds a specific time slot BatteryDiffEntry list into result map.
-            resultMap.put(Integer.valueOf(index), batteryDiffEntryList);
-
-            // Calculates all packages diff usage data in a specific time slot.
-            for (String key : allBatteryHistEntryKeys) {
-                final BatteryHistEntry currentEntry =
-                    currentBatteryHistMap.getOrDefault(key, EMPTY_BATTERY_HIST_ENTRY);
-                final BatteryHistEntry nextEntry =
-                    nextBatteryHistMap.getOrDefault(key, EMPTY_BATTERY_HIST_ENTRY);
-                final BatteryHistEntry nextTwoEntry =
-                    nextTwoBatteryHistMap.getOrDefault(key, EMPTY_BATTERY_HIST_ENTRY);
-                // Cumulative values is a specific time slot for a specific app.
-                long foregroundUsageTimeInMs =
-                    getDiffValue(
-                        currentEntry.mForegroundUsageTimeInMs,
-                        nextEntry.mForegroundUsageTimeInMs,
-                        nextTwoEntry.mForegroundUsageTimeInMs);
-                long backgroundUsageTimeInMs =
-                    getDiffValue(
-                        currentEntry.mBackgroundUsageTimeInMs,
-                        nextEntry.mBackgroundUsageTimeInMs,
-                        nextTwoEntry.mBackgroundUsageTimeInMs);
-                double consumePower =
-                    getDiffValue(
-                        currentEntry.mConsumePower,
-                        nextEntry.mConsumePower,
-                        nextTwoEntry.mConsumePower);
-                // Excludes entry since we don't have enough data to calculate.
-                if (foregroundUsageTimeInMs == 0
-                        && backgroundUsageTimeInMs == 0
-                        && consumePower == 0) {
-                    continue;
-                }
-                final BatteryHistEntry selectedBatteryEntry =
-                    selectBatteryHistEntry(currentEntry, nextEntry, nextTwoEntry);
-                if (selectedBatteryEntry == null) {
-                    continue;
-                }
-                // Forces refine the cumulative value since it may introduce deviation
-                // error since we will apply the interpolation arithmetic.
-                final float totalUsageTimeInMs =
-                    foregroundUsageTimeInMs + backgroundUsageTimeInMs;
-                if (totalUsageTimeInMs > TOTAL_TIME_THRESHOLD) {
-                    final float ratio = TOTAL_TIME_THRESHOLD / totalUsageTimeInMs;
-                    if (DEBUG) {
-                        Log.w(TAG, String.format("abnormal usage time %d|%d for:\n%s",
-                                Duration.ofMillis(foregroundUsageTimeInMs).getSeconds(),
-                                Duration.ofMillis(backgroundUsageTimeInMs).getSeconds(),
-                                currentEntry));
-                    }
-                    foregroundUsageTimeInMs =
-                        Math.round(foregroundUsageTimeInMs * ratio);
-                    backgroundUsageTimeInMs =
-                        Math.round(backgroundUsageTimeInMs * ratio);
-                    consumePower = consumePower * ratio;
+            final List<BatteryDiffEntry> entryList = slotEntryLists.get(index);
+            resultMap.put(Integer.valueOf(index), entryList);
+            for (BatteryDiffEntry entry : entryList) {
+                final String key = entry.mBatteryHistEntry.getKey();
+                UsageAccumulator accumulator = allUsageMap.get(key);
+                if (accumulator == null) {
+                    accumulator = new UsageAccumulator(entry.mBatteryHistEntry);
+                    allUsageMap.put(key, accumulator);
                 }
-                totalConsumePower += consumePower;
-                batteryDiffEntryList.add(
-                    new BatteryDiffEntry(
-                        context,
-                        foregroundUsageTimeInMs,
-                        backgroundUsageTimeInMs,
-                        consumePower,
-                        selectedBatteryEntry));
-            }
-            // Sets total consume power data into all BatteryDiffEntry in the same slot.
-            for (BatteryDiffEntry diffEntry : batteryDiffEntryList) {
-                diffEntry.setTotalConsumePower(totalConsumePower);
+                accumulator.mForegroundUsageTimeInMs += entry.mForegroundUsageTimeInMs;
+                accumulator.mBackgroundUsageTimeInMs += entry.mBackgroundUsageTimeInMs;
+                accumulator.mConsumePower += entry.mConsumePower;
+                allConsumePower += entry.mConsumePower;
             }
         }
-        insert24HoursData(BatteryChartView.SELECTED_INDEX_ALL, resultMap);
+        final List<BatteryDiffEntry> allEntryList = new ArrayList<>(allUsageMap.size());
+        for (UsageAccumulator accumulator : allUsageMap.values()) {
+            final BatteryDiffEntry entry = new BatteryDiffEntry(
+                context,
+                accumulator.mForegroundUsageTimeInMs,
+                accumulator.mBackgroundUsageTimeInMs,
+                accumulator.mConsumePower,
+                accumulator.mBatteryHistEntry);
+            entry.setTotalConsumePower(allConsumePower);
+            allEntryList.add(entry);
+        }
+        resultMap.put(Integer.valueOf(BatteryChartView.SELECTED_INDEX_ALL), allEntryList);
+
         if (purgeLowPercentageAndFakeData) {
             purgeLowPercentageAndFakeData(context, resultMap);
         }
         return resultMap;
     }
 
-    private static void insert24HoursData(
-            final int desiredIndex,
-            final Map<Integer, List<BatteryDiffEntry>> indexedUsageMap) {
-        final Map<String, BatteryDiffEntry> resultMap = new HashMap<>();
+    private static List<BatteryDiffEntry> getSlotUsageList(
+            final Context context,
+            final int index,
+            final long[] batteryHistoryKeys,
+            final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap) {
+        // Each time slot usage diff data =
+        //     Math.abs(timestamp[i+2] data - timestamp[i+1] data) +
+        //     Math.abs(timestamp[i+1] data - timestamp[i] data);
+        // since we want to aggregate every two hours data into a single time slot.
+        final int timestampStride = 2;
+        // Fetches BatteryHistEntry data from corresponding time slot.
+        final Map<String, BatteryHistEntry> currentBatteryHistMap =
+            batteryHistoryMap.getOrDefault(
+                batteryHistoryKeys[index * timestampStride], EMPTY_BATTERY_MAP);
+        final Map<String, BatteryHistEntry> nextBatteryHistMap =
+            batteryHistoryMap.getOrDefault(
+                batteryHistoryKeys[index * timestampStride + 1], EMPTY_BATTERY_MAP);
+        final Map<String, BatteryHistEntry> nextTwoBatteryHistMap =
+            batteryHistoryMap.getOrDefault(
+                batteryHistoryKeys[index * timestampStride + 2], EMPTY_BATTERY_MAP);
+        final List<BatteryDiffEntry> batteryDiffEntryList = new ArrayList<>();
+        // We should not get the empty list since we have at least one fake data to record
+        // the battery level and status in each time slot, the empty list is used to
+        // represent there is no enough data to apply interpolation arithmetic.
+        if (currentBatteryHistMap.isEmpty()
+                || nextBatteryHistMap.isEmpty()
+                || nextTwoBatteryHistMap.isEmpty()) {
+            return batteryDiffEntryList;
+        }
+
+        // Calculates all packages diff usage data in a specific time slot. Every key of the
+        // three time slot records is visited once, in the first record that contains it.
         double totalConsumePower = 0.0;
-        // Loops for all BatteryDiffEntry and aggregate them together.
-        for (List<BatteryDiffEntry> entryList : indexedUsageMap.values()) {
-            for (BatteryDiffEntry entry : entryList) {
-                final String key = entry.mBatteryHistEntry.getKey();
-                final BatteryDiffEntry oldBatteryDiffEntry = resultMap.get(key);
-                // Creates new BatteryDiffEntry if we don't have it.
-                if (oldBatteryDiffEntry == null) {
-                    resultMap.put(key, entry.clone());
-                } else {
-                    // Sums up some fields data into the existing one.
-                    oldBatteryDiffEntry.mForegroundUsageTimeInMs +=
-                        entry.mForegroundUsageTimeInMs;
-                    oldBatteryDiffEntry.mBackgroundUsageTimeInMs +=
-                        entry.mBackgroundUsageTimeInMs;
-                    oldBatteryDiffEntry.mConsumePower += entry.mConsumePower;
-                }
-                totalConsumePower += entry.mConsumePower;
+        for (String key : currentBatteryHistMap.keySet()) {
+            totalConsumePower += addSlotUsage(context, key, currentBatteryHistMap,
+                nextBatteryHistMap, nextTwoBatteryHistMap, batteryDiffEntryList);
+        }
+        for (String key : nextBatteryHistMap.keySet()) {
+            if (!currentBatteryHistMap.containsKey(key)) {
+                totalConsumePower += addSlotUsage(context, key, currentBatteryHistMap,
+                    nextBatteryHistMap, nextTwoBatteryHistMap, batteryDiffEntryList);
+            }
+        }
+        for (String key : nextTwoBatteryHistMap.keySet()) {
+            if (!currentBatteryHistMap.containsKey(key)
+                    && !nextBatteryHistMap.containsKey(key)) {
+                totalConsumePower += addSlotUsage(context, key, currentBatteryHistMap,
+                    nextBatteryHistMap, nextTwoBatteryHistMap, batteryDiffEntryList);
             }
         }
-        final List<BatteryDiffEntry> resultList = new ArrayList<>(resultMap.values());
-        // Sets total 24 hours consume power data into all BatteryDiffEntry.
-        for (BatteryDiffEntry entry : resultList) {
-            entry.setTotalConsumePower(totalConsumePower);
+        // Sets total consume power data into all BatteryDiffEntry in the same slot.
+        for (BatteryDiffEntry diffEntry : batteryDiffEntryList) {
+            diffEntry.setTotalConsumePower(totalConsumePower);
         }
-        indexedUsageMap.put(Integer.valueOf(desiredIndex), resultList);
+        return batteryDiffEntryList;
+    }
+
+    // Adds the usage of key in a time slot to batteryDiffEntryList, returns its consumed power.
+    private static double addSlotUsage(
+            final Context context,
+            final String key,
+            final Map<String, BatteryHistEntry> currentBatteryHistMap,
+            final Map<String, BatteryHistEntry> nextBatteryHistMap,
+            final Map<String, BatteryHistEntry> nextTwoBatteryHistMap,
+            final List<BatteryDiffEntry> batteryDiffEntryList) {
+        final BatteryHistEntry currentEntry =
+            currentBatteryHistMap.getOrDefault(key, EMPTY_BATTERY_HIST_ENTRY);
+        final BatteryHistEntry nextEntry =
+            nextBatteryHistMap.getOrDefault(key, EMPTY_BATTERY_HIST_ENTRY);
+        final BatteryHistEntry nextTwoEntry =
+            nextTwoBatteryHistMap.getOrDefault(key, EMPTY_BATTERY_HIST_ENTRY);
+        // Cumulative values is a specific time slot for a specific app.
+        long foregroundUsageTimeInMs =
+            getDiffValue(
+                currentEntry.mForegroundUsageTimeInMs,
+                nextEntry.mForegroundUsageTimeInMs,
+                nextTwoEntry.mForegroundUsageTimeInMs);
+        long backgroundUsageTimeInMs =
+            getDiffValue(
+                currentEntry.mBackgroundUsageTimeInMs,
+                nextEntry.mBackgroundUsageTimeInMs,
+                nextTwoEntry.mBackgroundUsageTimeInMs);
+        double consumePower =
+            getDiffValue(
+                currentEntry.mConsumePower,
+                nextEntry.mConsumePower,
+                nextTwoEntry.mConsumePower);
+        // Excludes entry since we don't have enough data to calculate.
+        if (foregroundUsageTimeInMs == 0
+                && backgroundUsageTimeInMs == 0
+                && consumePower == 0) {
+            return 0.0;
+        }
+        final BatteryHistEntry selectedBatteryEntry =
+            selectBatteryHistEntry(currentEntry, nextEntry, nextTwoEntry);
+        if (selectedBatteryEntry == null) {
+            return 0.0;
+        }
+        // Forces refine the cumulative value since it may introduce deviation
+        // error since we will apply the interpolation arithmetic.
+        final float totalUsageTimeInMs =
+            foregroundUsageTimeInMs + backgroundUsageTimeInMs;
+        if (totalUsageTimeInMs > TOTAL_TIME_THRESHOLD) {
+            final float ratio = TOTAL_TIME_THRESHOLD / totalUsageTimeInMs;
+            if (DEBUG) {
+                Log.w(TAG, String.format("abnormal usage time %d|%d for:\n%s",
+                        Duration.ofMillis(foregroundUsageTimeInMs).getSeconds(),
+                        Duration.ofMillis(backgroundUsageTimeInMs).getSeconds(),
+                        currentEntry));
+            }
+            foregroundUsageTimeInMs =
+                Math.round(foregroundUsageTimeInMs * ratio);
+            backgroundUsageTimeInMs =
+                Math.round(backgroundUsageTimeInMs * ratio);
+            consumePower = consumePower * ratio;
+        }
+        batteryDiffEntryList.add(
+            new BatteryDiffEntry(
+                context,
+                foregroundUsageTimeInMs,
+                backgroundUsageTimeInMs,
+                consumePower,
+                selectedBatteryEntry));
+        return consumePower;
     }
 
     // Removes low percentage data and fake usage data, which will be zero value.
@@ -356,4 +384,17 @@ public final class ConvertUtils {
         return locales != null && !locales.isEmpty() ? locales.get(0)
             : Locale.getDefault();
     }
+
+    /** Sums up the usage of one key over all time slots. */
+    private static final class UsageAccumulator {
+        // The entry of the first time slot with usage of the key.
+        final BatteryHistEntry mBatteryHistEntry;
+        long mForegroundUsageTimeInMs;
+        long mBackgroundUsageTimeInMs;
+        double mConsumePower;
+
+        UsageAccumulator(BatteryHistEntry batteryHistEntry) {
+            mBatteryHistEntry = batteryHistEntry;
+        }
+    }
 }
@@ -63,7 +63,7 @@ public class AnomalyCleanupJobService extends JobService {
         final BatteryDatabaseManager batteryDatabaseManager = BatteryDatabaseManager
                 .getInstance(this);
         final BatteryTipPolicy policy = new BatteryTipPolicy(this);
-        ThreadUtils.postOnBackgroundThread(() -> {
+        ThreadUtils.postOnBackgroundThread(ThreadUtils.LANE_MAINTENANCE, () -> {
             batteryDatabaseManager.deleteAllAnomaliesBeforeTimeStamp(
                     System.currentTimeMillis() - TimeUnit.DAYS.toMillis(
                             policy.dataHistoryRetainDay));
@@ -69,7 +69,7 @@ public class AnomalyConfigJobService extends JobService {
 
     @Override
     public boolean onStartJob(JobParameters params) {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        ThreadUtils.postOnBackgroundThread(ThreadUtils.LANE_MAINTENANCE, () -> {
             final StatsManager statsManager = getSystemService(StatsManager.class);
             checkAnomalyConfig(statsManager);
             try {
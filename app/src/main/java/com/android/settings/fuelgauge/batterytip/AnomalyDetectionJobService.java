@@ -88,7 +88,7 @@ public class AnomalyDetectionJobService extends JobService {
         synchronized (mLock) {
             mIsJobCanceled = false;
         }
-        ThreadUtils.postOnBackgroundThread(() -> {
+        ThreadUtils.postOnBackgroundThread(ThreadUtils.LANE_MAINTENANCE, () -> {
             final Context context = AnomalyDetectionJobService.this;
             final BatteryDatabaseManager batteryDatabaseManager =
                     BatteryDatabaseManager.getInstance(this);
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.slice.Slice;
+
+/**
+ * Remembers the outcome of binding each card's slice for a short time, so that the homepage does
+ * not bind every slice again when it is resumed.
+ */
+class CardEligibilityCache {
+
+    @VisibleForTesting
+    static final long TTL_MS = 60_000;
+
+    private static final CardEligibilityCache sInstance = new CardEligibilityCache();
+
+    private final ArrayMap<Uri, Result> mResults = new ArrayMap<>();
+
+    static CardEligibilityCache getInstance() {
+        return sInstance;
+    }
+
+    /** Returns the unexpired result for {@code sliceUri}, or null if it must be checked again. */
+    synchronized Result get(Uri sliceUri) {
+        final Result result = mResults.get(sliceUri);
+        if (result == null) {
+            return null;
+        }
+        if (SystemClock.elapsedRealtime() - result.mCheckedTime >= TTL_MS) {
+            mResults.remove(sliceUri);
+            return null;
+        }
+        return result;
+    }
+
+    synchronized void put(Uri sliceUri, Result result) {
+        mResults.put(sliceUri, result);
+    }
+
+    /** Drops all results, e.g. when the card provider announces new or deleted cards. */
+    synchronized void clear() {
+        mResults.clear();
+    }
+
+    /** The outcome of binding a card's slice. */
+    static class Result {
+        final Slice mSlice;
+        final boolean mToggleable;
+        private final long mCheckedTime = SystemClock.elapsedRealtime();
+
+        /**
+         * @param slice the bound slice, or null if it could not be bound and the card is not
+         *              eligible
+         * @param toggleable whether the slice has an inline toggle
+         */
+        Result(Slice slice, boolean toggleable) {
+            mSlice = slice;
+            mToggleable = toggleable;
+        }
+
+        boolean isEligible() {
+            return mSlice != null;
+        }
+    }
+}
@@ -27,6 +27,7 @@ import android.database.Cursor;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.provider.Settings;
 import android.util.Log;
 
@@ -41,9 +42,9 @@ import com.android.settingslib.utils.AsyncLoaderCompat;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -57,11 +58,18 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
 
     private static final String TAG = "ContextualCardLoader";
     private static final long ELIGIBILITY_CHECKER_TIMEOUT_MS = 400;
+    private static final long ELIGIBILITY_CHECKER_KEEP_ALIVE_SECONDS = 30;
+
+    // Shared by all loaders so that loads reuse idle threads. Every check still gets a thread of
+    // its own right away, as a check that waited in a queue would miss the timeout.
+    private static final ThreadPoolExecutor sCheckerExecutor = newCheckerExecutor();
 
     private final ContentObserver mObserver = new ContentObserver(
             new Handler(Looper.getMainLooper())) {
         @Override
         public void onChange(boolean selfChange, Uri uri) {
+            // The card provider changed, so cached eligibility results may be wrong.
+            CardEligibilityCache.getInstance().clear();
             if (isStarted()) {
                 mNotifyUri = uri;
                 forceLoad();
@@ -188,20 +196,19 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
             return candidates;
         }
 
-        final ExecutorService executor = Executors.newFixedThreadPool(candidates.size());
         final List<ContextualCard> cards = new ArrayList<>();
         List<Future<ContextualCard>> eligibleCards = new ArrayList<>();
 
+        final long deadline = SystemClock.elapsedRealtime() + ELIGIBILITY_CHECKER_TIMEOUT_MS;
         final List<EligibleCardChecker> checkers = candidates.stream()
-                .map(card -> new EligibleCardChecker(mContext, card))
+                .map(card -> new EligibleCardChecker(mContext, card, deadline))
                 .collect(Collectors.toList());
         try {
-            eligibleCards = executor.invokeAll(checkers, ELIGIBILITY_CHECKER_TIMEOUT_MS,
+            eligibleCards = sCheckerExecutor.invokeAll(checkers, ELIGIBILITY_CHECKER_TIMEOUT_MS,
                     TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) {
             Log.w(TAG, "Failed to get eligible states for all cards", e);
         }
-        executor.shutdown();
 
         // Collect future and eligible cards
         for (int i = 0; i < eligibleCards.size(); i++) {
@@ -224,6 +231,13 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
         return cards;
     }
 
+    private static ThreadPoolExecutor newCheckerExecutor() {
+        return new ThreadPoolExecutor(0 /* corePoolSize */, Integer.MAX_VALUE,
+                ELIGIBILITY_CHECKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                runnable -> new Thread(runnable, "EligibleCardChecker"));
+    }
+
     private boolean isLargeCard(ContextualCard card) {
         return card.getSliceUri().equals(CONTEXTUAL_WIFI_SLICE_URI)
                 || card.getSliceUri().equals(BLUETOOTH_DEVICES_SLICE_URI);
@@ -23,6 +23,7 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.net.Uri;
 import android.os.AsyncTask;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
@@ -43,13 +44,16 @@ public class EligibleCardChecker implements Callable<ContextualCard> {
     private static final String TAG = "EligibleCardChecker";
 
     private final Context mContext;
+    // SystemClock.elapsedRealtime() after which the caller no longer waits for this check.
+    private final long mDeadline;
 
     @VisibleForTesting
     ContextualCard mCard;
 
-    EligibleCardChecker(Context context, ContextualCard card) {
+    EligibleCardChecker(Context context, ContextualCard card, long deadline) {
         mContext = context;
         mCard = card;
+        mDeadline = deadline;
     }
 
     @Override
@@ -93,22 +97,39 @@ public class EligibleCardChecker implements Callable<ContextualCard> {
             return false;
         }
 
-        final Slice slice = bindSlice(uri);
-
-        if (slice == null || slice.hasHint(HINT_ERROR)) {
-            Log.w(TAG, "Failed to bind slice, not eligible for display " + uri);
+        final CardEligibilityCache cache = CardEligibilityCache.getInstance();
+        CardEligibilityCache.Result result = cache.get(uri);
+        if (result == null) {
+            result = checkSlice(uri);
+            // A check that outlived the caller's timeout is likely to be slow again next time,
+            // so it is not cached and gets another chance on the next load.
+            if (SystemClock.elapsedRealtime() <= mDeadline) {
+                cache.put(uri, result);
+            }
+        }
+        if (!result.isEligible()) {
             return false;
         }
 
-        mCard = card.mutate().setSlice(slice).build();
+        mCard = card.mutate().setSlice(result.mSlice).build();
 
-        if (isSliceToggleable(slice)) {
+        if (result.mToggleable) {
             mCard = card.mutate().setHasInlineAction(true).build();
         }
 
         return true;
     }
 
+    private CardEligibilityCache.Result checkSlice(Uri uri) {
+        final Slice slice = bindSlice(uri);
+
+        if (slice == null || slice.hasHint(HINT_ERROR)) {
+            Log.w(TAG, "Failed to bind slice, not eligible for display " + uri);
+            return new CardEligibilityCache.Result(null /* slice */, false /* toggleable */);
+        }
+        return new CardEligibilityCache.Result(slice, isSliceToggleable(slice));
+    }
+
     @VisibleForTesting
     Slice bindSlice(Uri uri) {
         final SliceViewManager manager = SliceViewManager.getInstance(mContext);
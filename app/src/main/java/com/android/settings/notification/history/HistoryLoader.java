@@ -24,6 +24,8 @@ import android.content.pm.PackageManager;
 import android.os.UserHandle;
 import android.util.Slog;
 
+import androidx.lifecycle.LifecycleOwner;
+
 import com.android.settings.notification.NotificationBackend;
 import com.android.settingslib.utils.ThreadUtils;
 
@@ -45,8 +47,12 @@ public class HistoryLoader {
         mPm = pm;
     }
 
-    public void load(OnHistoryLoaderListener listener) {
-        ThreadUtils.postOnBackgroundThread(() -> {
+    /**
+     * Loads the notification history in the background. The load is abandoned if {@code owner}
+     * is destroyed first.
+     */
+    public void load(LifecycleOwner owner, OnHistoryLoaderListener listener) {
+        ThreadUtils.postOnBackgroundThread(ThreadUtils.LANE_UI_VISIBLE, owner, () -> {
             try {
                 Map<String, NotificationHistoryPackage> historicalNotifications = new HashMap<>();
                 NotificationHistory history =
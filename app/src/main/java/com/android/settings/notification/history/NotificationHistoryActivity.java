@@ -259,7 +259,7 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
 
         mTodayView.removeAllViews();
         mHistoryLoader = new HistoryLoader(this, new NotificationBackend(), mPm);
-        mHistoryLoader.load(mOnHistoryLoaderListener);
+        mHistoryLoader.load(this, mOnHistoryLoaderListener);
 
         mNm = INotificationManager.Stub.asInterface(
                 ServiceManager.getService(Context.NOTIFICATION_SERVICE));
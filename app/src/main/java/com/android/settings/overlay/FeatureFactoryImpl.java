@@ -76,6 +76,7 @@ import com.android.settings.users.UserFeatureProviderImpl;
 import com.android.settings.wifi.WifiTrackerLibProvider;
 import com.android.settings.wifi.WifiTrackerLibProviderImpl;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
+import com.android.settingslib.utils.ThreadUtils;
 
 /**
  * {@link FeatureFactory} implementation for AOSP Settings.
@@ -119,6 +120,7 @@ public class FeatureFactoryImpl extends FeatureFactory {
     public MetricsFeatureProvider getMetricsFeatureProvider() {
         if (mMetricsFeatureProvider == null) {
             mMetricsFeatureProvider = new SettingsMetricsFeatureProvider();
+            ThreadUtils.setTaskMetricsListener(mMetricsFeatureProvider);
         }
         return mMetricsFeatureProvider;
     }
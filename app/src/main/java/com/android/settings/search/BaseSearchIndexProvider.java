@@ -102,17 +102,34 @@ public class BaseSearchIndexProvider implements Indexable.SearchIndexProvider {
         return dynamicRaws;
     }
 
+    /**
+     * Returns the non-indexable keys of the page. The keys computed here are cached until the
+     * inputs from {@link #getAvailabilityInputs()} change, if the page declares them; subclasses
+     * add their own keys on top.
+     */
     @Override
     @CallSuper
     public List<String> getNonIndexableKeys(Context context) {
-        if (!isPageSearchEnabled(context)) {
+        final boolean pageSearchEnabled = isPageSearchEnabled(context);
+        final NonIndexableKeysCache cache = NonIndexableKeysCache.getInstance();
+        final List<String> cachedKeys = cache.get(context, this, pageSearchEnabled);
+        if (cachedKeys != null) {
+            return cachedKeys;
+        }
+
+        if (!pageSearchEnabled) {
             // Entire page should be suppressed, mark all keys from this page as non-indexable.
-            return getNonIndexableKeysFromXml(context, true /* suppressAllPage */);
+            final List<String> keys =
+                    getNonIndexableKeysFromXml(context, true /* suppressAllPage */);
+            cache.put(context, this, pageSearchEnabled, 0 /* inputFlags */,
+                    false /* hasControllers */, keys);
+            return keys;
         }
         final List<String> nonIndexableKeys = new ArrayList<>();
         nonIndexableKeys.addAll(getNonIndexableKeysFromXml(context, false /* suppressAllPage */));
         final List<AbstractPreferenceController> controllers = getPreferenceControllers(context);
-        if (controllers != null && !controllers.isEmpty()) {
+        final boolean hasControllers = controllers != null && !controllers.isEmpty();
+        if (hasControllers) {
             for (AbstractPreferenceController controller : controllers) {
                 if (controller instanceof PreferenceControllerMixin) {
                     ((PreferenceControllerMixin) controller)
@@ -128,6 +145,8 @@ public class BaseSearchIndexProvider implements Indexable.SearchIndexProvider {
                 }
             }
         }
+        cache.put(context, this, pageSearchEnabled, getAvailabilityInputs(), hasControllers,
+                nonIndexableKeys);
         return nonIndexableKeys;
     }
 
@@ -167,6 +186,16 @@ public class BaseSearchIndexProvider implements Indexable.SearchIndexProvider {
         return null;
     }
 
+    /**
+     * Returns the system inputs, as {@link NonIndexableKeysCache.Inputs} flags, that the
+     * availability of all of this page's controllers depends on. Only override this if none of
+     * the controllers read other state, such as settings values. By default the non-indexable
+     * keys of pages with controllers are computed again for every query.
+     */
+    protected int getAvailabilityInputs() {
+        return NonIndexableKeysCache.INPUTS_UNTRACKED;
+    }
+
     /**
      * Returns true if the page should be considered in search query. If return false, entire page
      * will be suppressed during search query.
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import android.annotation.IntDef;
+import android.content.Context;
+import android.content.pm.ChangedPackages;
+import android.content.res.Configuration;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.os.UserHandle;
+import android.os.UserManager;
+import android.util.ArrayMap;
+import android.util.FeatureFlagUtils;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Caches the non-indexable keys computed by each {@link BaseSearchIndexProvider}, together with
+ * the system inputs their controllers' availability depends on.
+ *
+ * <p>A provider declares these inputs with {@link BaseSearchIndexProvider#getAvailabilityInputs}.
+ * Its keys are computed again only when one of its inputs or the configuration changed. Keys of
+ * providers whose controllers depend on state that is not tracked here, e.g. settings values or
+ * the SIM state, are not cached at all. Keys of providers without controllers only depend on
+ * their XML and are always cached.
+ */
+public class NonIndexableKeysCache {
+
+    /** Installed, updated and removed packages. */
+    public static final int INPUT_PACKAGES = 1 << 0;
+    /** Restrictions of the current user. */
+    public static final int INPUT_USER_RESTRICTIONS = 1 << 1;
+    /** Settings feature flags, including their overrides. */
+    public static final int INPUT_FEATURE_FLAGS = 1 << 2;
+    /** Profiles of the current user, e.g. a work profile. */
+    public static final int INPUT_PROFILES = 1 << 3;
+    /** Availability depends on state that is not tracked, so the keys must not be cached. */
+    public static final int INPUTS_UNTRACKED = -1;
+
+    @IntDef(flag = true, value = {
+            INPUT_PACKAGES,
+            INPUT_USER_RESTRICTIONS,
+            INPUT_FEATURE_FLAGS,
+            INPUT_PROFILES,
+    })
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Inputs {
+    }
+
+    // Inputs are read at most this often when no batch of queries refreshes them explicitly.
+    private static final long INPUTS_REFRESH_MS = 1_000;
+
+    private static final NonIndexableKeysCache sInstance = new NonIndexableKeysCache();
+
+    // Providers are singletons, and several pages share the class BaseSearchIndexProvider.
+    private final Map<BaseSearchIndexProvider, Entry> mEntries = new ArrayMap<>();
+    private InputsSnapshot mInputs;
+    private long mInputsTime;
+
+    static NonIndexableKeysCache getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Reads the current inputs, e.g. before a batch of queries. Later lookups compare the cached
+     * keys against these inputs.
+     */
+    synchronized void refreshInputs(Context context) {
+        mInputs = new InputsSnapshot(context.getApplicationContext(), mInputs);
+        mInputsTime = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Returns a copy of the keys cached for {@code provider} if they are still valid, or null.
+     *
+     * @param pageSearchEnabled whether the page of the provider is currently searchable
+     */
+    synchronized List<String> get(Context context, BaseSearchIndexProvider provider,
+            boolean pageSearchEnabled) {
+        final Entry entry = mEntries.get(provider);
+        if (entry == null) {
+            return null;
+        }
+        final InputsSnapshot inputs = getInputs(context);
+        if (entry.mPageSearchEnabled != pageSearchEnabled
+                || !inputs.matches(entry.mInputs, entry.mInputFlags)) {
+            mEntries.remove(provider);
+            return null;
+        }
+        return new ArrayList<>(entry.mKeys);
+    }
+
+    /**
+     * Caches a copy of {@code keys}, unless they depend on untracked state.
+     *
+     * @param inputFlags     the inputs the availability of the provider's controllers depends on,
+     *                       or {@link #INPUTS_UNTRACKED}
+     * @param hasControllers false if the keys only depend on the XML of the provider
+     */
+    synchronized void put(Context context, BaseSearchIndexProvider provider,
+            boolean pageSearchEnabled, int inputFlags, boolean hasControllers,
+            List<String> keys) {
+        if (!hasControllers) {
+            inputFlags = 0;
+        } else if (inputFlags == INPUTS_UNTRACKED) {
+            mEntries.remove(provider);
+            return;
+        }
+        mEntries.put(provider, new Entry(getInputs(context), inputFlags, pageSearchEnabled, keys));
+    }
+
+    private InputsSnapshot getInputs(Context context) {
+        if (mInputs == null
+                || SystemClock.elapsedRealtime() - mInputsTime >= INPUTS_REFRESH_MS) {
+            refreshInputs(context);
+        }
+        return mInputs;
+    }
+
+    private static class Entry {
+        final InputsSnapshot mInputs;
+        final int mInputFlags;
+        final boolean mPageSearchEnabled;
+        final List<String> mKeys;
+
+        Entry(InputsSnapshot inputs, int inputFlags, boolean pageSearchEnabled,
+                List<String> keys) {
+            mInputs = inputs;
+            mInputFlags = inputFlags;
+            mPageSearchEnabled = pageSearchEnabled;
+            mKeys = new ArrayList<>(keys);
+        }
+    }
+
+    /** The values of all inputs at one point in time. */
+    private static class InputsSnapshot {
+        final int mPackagesSequence;
+        final String mUserRestrictions;
+        final Map<String, Boolean> mFeatureFlags;
+        final String mProfiles;
+        final Configuration mConfiguration;
+
+        InputsSnapshot(Context context, InputsSnapshot previous) {
+            final int lastSequence = previous != null ? previous.mPackagesSequence : 0;
+            final ChangedPackages changedPackages =
+                    context.getPackageManager().getChangedPackages(lastSequence);
+            mPackagesSequence = changedPackages != null
+                    ? changedPackages.getSequenceNumber() : lastSequence;
+            final UserManager userManager = context.getSystemService(UserManager.class);
+            mUserRestrictions = flattenRestrictions(userManager.getUserRestrictions());
+            mProfiles = Arrays.toString(
+                    userManager.getProfileIdsWithDisabled(UserHandle.myUserId()));
+            mFeatureFlags = new ArrayMap<>();
+            for (String flag : FeatureFlagUtils.getAllFeatureFlags().keySet()) {
+                mFeatureFlags.put(flag, FeatureFlagUtils.isEnabled(context, flag));
+            }
+            // Resources, and with them the XML and config values, follow the configuration.
+            mConfiguration = new Configuration(context.getResources().getConfiguration());
+        }
+
+        boolean matches(InputsSnapshot other, int inputFlags) {
+            if (other == this) {
+                return true;
+            }
+            if (!mConfiguration.equals(other.mConfiguration)) {
+                return false;
+            }
+            if ((inputFlags & INPUT_PACKAGES) != 0
+                    && mPackagesSequence != other.mPackagesSequence) {
+                return false;
+            }
+            if ((inputFlags & INPUT_USER_RESTRICTIONS) != 0
+                    && !Objects.equals(mUserRestrictions, other.mUserRestrictions)) {
+                return false;
+            }
+            if ((inputFlags & INPUT_PROFILES) != 0
+                    && !mProfiles.equals(other.mProfiles)) {
+                return false;
+            }
+            return (inputFlags & INPUT_FEATURE_FLAGS) == 0
+                    || mFeatureFlags.equals(other.mFeatureFlags);
+        }
+
+        private static String flattenRestrictions(Bundle restrictions) {
+            final List<String> keys = new ArrayList<>();
+            for (String key : restrictions.keySet()) {
+                if (restrictions.getBoolean(key)) {
+                    keys.add(key);
+                }
+            }
+            Collections.sort(keys);
+            return keys.toString();
+        }
+    }
+}
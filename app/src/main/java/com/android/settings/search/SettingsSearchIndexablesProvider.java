@@ -115,20 +115,7 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
     @Override
     public Cursor queryXmlResources(String[] projection) {
         final MatrixCursor cursor = new MatrixCursor(INDEXABLES_XML_RES_COLUMNS);
-        final List<SearchIndexableResource> resources =
-                getSearchIndexableResourcesFromProvider(getContext());
-        for (SearchIndexableResource val : resources) {
-            final Object[] ref = new Object[INDEXABLES_XML_RES_COLUMNS.length];
-            ref[COLUMN_INDEX_XML_RES_RANK] = val.rank;
-            ref[COLUMN_INDEX_XML_RES_RESID] = val.xmlResId;
-            ref[COLUMN_INDEX_XML_RES_CLASS_NAME] = val.className;
-            ref[COLUMN_INDEX_XML_RES_ICON_RESID] = val.iconResId;
-            ref[COLUMN_INDEX_XML_RES_INTENT_ACTION] = val.intentAction;
-            ref[COLUMN_INDEX_XML_RES_INTENT_TARGET_PACKAGE] = val.intentTargetPackage;
-            ref[COLUMN_INDEX_XML_RES_INTENT_TARGET_CLASS] = null; // intent target class
-            cursor.addRow(ref);
-        }
-
+        addSearchIndexableResourcesFromProvider(getContext(), cursor);
         return cursor;
     }
 
@@ -138,11 +125,7 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
     @Override
     public Cursor queryRawData(String[] projection) {
         final MatrixCursor cursor = new MatrixCursor(INDEXABLES_RAW_COLUMNS);
-        final List<SearchIndexableRaw> raws = getSearchIndexableRawFromProvider(getContext());
-        for (SearchIndexableRaw val : raws) {
-            cursor.addRow(createIndexableRawColumnObjects(val));
-        }
-
+        addSearchIndexableRawFromProvider(getContext(), cursor);
         return cursor;
     }
 
@@ -154,13 +137,7 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
     @Override
     public Cursor queryNonIndexableKeys(String[] projection) {
         final MatrixCursor cursor = new MatrixCursor(NON_INDEXABLES_KEYS_COLUMNS);
-        final List<String> nonIndexableKeys = getNonIndexableKeysFromProvider(getContext());
-        for (String nik : nonIndexableKeys) {
-            final Object[] ref = new Object[NON_INDEXABLES_KEYS_COLUMNS.length];
-            ref[COLUMN_INDEX_NON_INDEXABLE_KEYS_KEY_VALUE] = nik;
-            cursor.addRow(ref);
-        }
-
+        addNonIndexableKeysFromProvider(getContext(), cursor);
         return cursor;
     }
 
@@ -172,12 +149,12 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
     @Override
     public Cursor queryDynamicRawData(String[] projection) {
         final Context context = getContext();
-        final List<SearchIndexableRaw> rawList = new ArrayList<>();
+        final MatrixCursor cursor = new MatrixCursor(INDEXABLES_RAW_COLUMNS);
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(context)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
 
         for (SearchIndexableData bundle : bundles) {
-            rawList.addAll(getDynamicSearchIndexableRawData(context, bundle));
+            addIndexableRawRows(cursor, getDynamicSearchIndexableRawData(context, bundle));
 
             // Refresh the search enabled state for indexing injection raw data
             final Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
@@ -185,12 +162,7 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
                 refreshSearchEnabledState(context, (BaseSearchIndexProvider) provider);
             }
         }
-        rawList.addAll(getInjectionIndexableRawData(context));
-
-        final MatrixCursor cursor = new MatrixCursor(INDEXABLES_RAW_COLUMNS);
-        for (SearchIndexableRaw raw : rawList) {
-            cursor.addRow(createIndexableRawColumnObjects(raw));
-        }
+        addIndexableRawRows(cursor, getInjectionIndexableRawData(context));
 
         return cursor;
     }
@@ -270,11 +242,14 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
         return cursor;
     }
 
-    private List<String> getNonIndexableKeysFromProvider(Context context) {
+    /**
+     * Adds the non-indexable keys of each provider to {@code cursor} as soon as the provider is
+     * evaluated, rather than collecting the keys of all providers first.
+     */
+    private void addNonIndexableKeysFromProvider(Context context, MatrixCursor cursor) {
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(context)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
-
-        final List<String> nonIndexableKeys = new ArrayList<>();
+        NonIndexableKeysCache.getInstance().refreshInputs(context);
 
         for (SearchIndexableData bundle : bundles) {
             final long startTime = System.currentTimeMillis();
@@ -315,16 +290,17 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
                         + totalTime);
             }
 
-            nonIndexableKeys.addAll(providerNonIndexableKeys);
+            for (String nik : providerNonIndexableKeys) {
+                final Object[] ref = new Object[NON_INDEXABLES_KEYS_COLUMNS.length];
+                ref[COLUMN_INDEX_NON_INDEXABLE_KEYS_KEY_VALUE] = nik;
+                cursor.addRow(ref);
+            }
         }
-
-        return nonIndexableKeys;
     }
 
-    private List<SearchIndexableResource> getSearchIndexableResourcesFromProvider(Context context) {
+    private void addSearchIndexableResourcesFromProvider(Context context, MatrixCursor cursor) {
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(context)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
-        List<SearchIndexableResource> resourceList = new ArrayList<>();
 
         for (SearchIndexableData bundle : bundles) {
             Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
@@ -335,22 +311,29 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
                 continue;
             }
 
-            for (SearchIndexableResource item : resList) {
-                item.className = TextUtils.isEmpty(item.className)
+            for (SearchIndexableResource val : resList) {
+                final Object[] ref = new Object[INDEXABLES_XML_RES_COLUMNS.length];
+                ref[COLUMN_INDEX_XML_RES_RANK] = val.rank;
+                ref[COLUMN_INDEX_XML_RES_RESID] = val.xmlResId;
+                ref[COLUMN_INDEX_XML_RES_CLASS_NAME] = TextUtils.isEmpty(val.className)
                         ? bundle.getTargetClass().getName()
-                        : item.className;
+                        : val.className;
+                ref[COLUMN_INDEX_XML_RES_ICON_RESID] = val.iconResId;
+                ref[COLUMN_INDEX_XML_RES_INTENT_ACTION] = val.intentAction;
+                ref[COLUMN_INDEX_XML_RES_INTENT_TARGET_PACKAGE] = val.intentTargetPackage;
+                ref[COLUMN_INDEX_XML_RES_INTENT_TARGET_CLASS] = null; // intent target class
+                cursor.addRow(ref);
             }
-
-            resourceList.addAll(resList);
         }
-
-        return resourceList;
     }
 
-    private List<SearchIndexableRaw> getSearchIndexableRawFromProvider(Context context) {
+    /**
+     * Adds the raw data of each provider to {@code cursor} as soon as the provider is evaluated,
+     * so only one provider's {@link SearchIndexableRaw} objects are alive at a time.
+     */
+    private void addSearchIndexableRawFromProvider(Context context, MatrixCursor cursor) {
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(context)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
-        final List<SearchIndexableRaw> rawList = new ArrayList<>();
 
         for (SearchIndexableData bundle : bundles) {
             Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
@@ -367,10 +350,8 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
                 raw.className = bundle.getTargetClass().getName();
 
             }
-            rawList.addAll(providerRaws);
+            addIndexableRawRows(cursor, providerRaws);
         }
-
-        return rawList;
     }
 
     private List<SearchIndexableRaw> getDynamicSearchIndexableRawData(Context context,
@@ -458,6 +439,12 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
         return true;
     }
 
+    private static void addIndexableRawRows(MatrixCursor cursor, List<SearchIndexableRaw> raws) {
+        for (SearchIndexableRaw raw : raws) {
+            cursor.addRow(createIndexableRawColumnObjects(raw));
+        }
+    }
+
     private static Object[] createIndexableRawColumnObjects(SearchIndexableRaw raw) {
         final Object[] ref = new Object[INDEXABLES_RAW_COLUMNS.length];
         ref[COLUMN_INDEX_RAW_TITLE] = raw.title;
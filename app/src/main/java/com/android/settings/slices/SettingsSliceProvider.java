@@ -60,7 +60,6 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -75,9 +74,11 @@ import java.util.stream.Collectors;
  * return an stub {@link Slice} with the correct {@link Uri} immediately. In the background, the
  * data corresponding to the key in the {@link Uri} is read by {@link SlicesDatabaseAccessor}, and
  * the entire row is converted into a {@link SliceData}. Once complete, it is stored in
- * {@link #mSliceWeakDataCache}, and then an update sent via the Slice framework to the Slice.
+ * {@link #mSliceDataCache}, and then an update sent via the Slice framework to the Slice.
  * The {@link Slice} displayed by the Slice-presenter will re-query this Slice-provider and find
- * the {@link SliceData} cached to build the full {@link Slice}.
+ * the {@link SliceData} cached to build the full {@link Slice}. The cache is bounded and keeps
+ * the most recently used slices, and {@link #onGetSliceDescendants(Uri)} warms it ahead of the
+ * first bind.
  *
  * <p>When an action is taken on that {@link Slice}, we receive the action in
  * {@link SliceBroadcastReceiver}, and use the
@@ -139,7 +140,7 @@ public class SettingsSliceProvider extends SliceProvider {
     SlicesDatabaseAccessor mSlicesDatabaseAccessor;
 
     @VisibleForTesting
-    Map<Uri, SliceData> mSliceWeakDataCache;
+    SliceDataCache mSliceDataCache;
 
     @VisibleForTesting
     final Map<Uri, SliceBackgroundWorker> mPinnedWorkers = new ArrayMap<>();
@@ -157,7 +158,7 @@ public class SettingsSliceProvider extends SliceProvider {
     public boolean onCreateSliceProvider() {
         Log.d(TAG, "onCreateSliceProvider");
         mSlicesDatabaseAccessor = new SlicesDatabaseAccessor(getContext());
-        mSliceWeakDataCache = new WeakHashMap<>();
+        mSliceDataCache = SliceDataCache.getInstance();
         return true;
     }
 
@@ -259,19 +260,15 @@ public class SettingsSliceProvider extends SliceProvider {
                         .createWifiCallingPreferenceSlice(sliceUri);
             }
 
-            final SliceData cachedSliceData = mSliceWeakDataCache.get(sliceUri);
+            final SliceData cachedSliceData = mSliceDataCache.get(sliceUri);
             if (cachedSliceData == null) {
                 loadSliceInBackground(sliceUri);
                 return getSliceStub(sliceUri);
             }
-
-            // Remove the SliceData from the cache after it has been used to prevent a memory-leak.
-            if (!getPinnedSlices().contains(sliceUri)) {
-                mSliceWeakDataCache.remove(sliceUri);
-            }
             return SliceBuilderUtils.buildSlice(getContext(), cachedSliceData);
         } finally {
             StrictMode.setThreadPolicy(oldPolicy);
+            SliceBackgroundWorker.onSliceBound(sliceUri);
             if (!mFirstSliceBound) {
                 Log.v(TAG, "onBindSlice end");
                 mFirstSliceBound = true;
@@ -348,6 +345,7 @@ public class SettingsSliceProvider extends SliceProvider {
             descendants.addAll(customSlices);
         }
         grantAllowlistedPackagePermissions(getContext(), descendants);
+        prefetchSliceDataInBackground(descendants);
         return descendants;
     }
 
@@ -396,12 +394,16 @@ public class SettingsSliceProvider extends SliceProvider {
     void loadSlice(Uri uri) {
         long startBuildTime = System.currentTimeMillis();
 
-        final SliceData sliceData;
-        try {
-            sliceData = mSlicesDatabaseAccessor.getSliceDataFromUri(uri);
-        } catch (IllegalStateException e) {
-            Log.d(TAG, "Could not create slicedata for uri: " + uri, e);
-            return;
+        SliceData sliceData = mSliceDataCache.get(uri);
+        if (sliceData == null) {
+            final int generation = mSliceDataCache.getGeneration();
+            try {
+                sliceData = mSlicesDatabaseAccessor.getSliceDataFromUri(uri);
+            } catch (IllegalStateException e) {
+                Log.d(TAG, "Could not create slicedata for uri: " + uri, e);
+                return;
+            }
+            mSliceDataCache.put(uri, sliceData, generation);
         }
 
         final BasePreferenceController controller = SliceBuilderUtils.getPreferenceController(
@@ -420,7 +422,6 @@ public class SettingsSliceProvider extends SliceProvider {
 
         ThreadUtils.postOnMainThread(() -> startBackgroundWorker(controller, uri));
 
-        mSliceWeakDataCache.put(uri, sliceData);
         getContext().getContentResolver().notifyChange(uri, null /* content observer */);
 
         Log.d(TAG, "Built slice (" + uri + ") in: " +
@@ -432,6 +433,41 @@ public class SettingsSliceProvider extends SliceProvider {
         ThreadUtils.postOnBackgroundThread(() -> loadSlice(uri));
     }
 
+    /**
+     * Reads the {@link SliceData} of {@code uris} that are backed by the slices database into the
+     * free room of {@link #mSliceDataCache}, without registering anything for them.
+     */
+    @VisibleForTesting
+    void prefetchSliceData(List<Uri> uris) {
+        final int generation = mSliceDataCache.getGeneration();
+        for (Uri uri : uris) {
+            if (mSliceDataCache.isFull()) {
+                break;
+            }
+            if (CustomSliceRegistry.isValidUri(uri) || SliceBuilderUtils.getPathData(uri) == null) {
+                continue;
+            }
+            try {
+                if (!mSliceDataCache.putIfRoom(uri,
+                        mSlicesDatabaseAccessor.getSliceDataFromUri(uri), generation)) {
+                    break;
+                }
+            } catch (IllegalStateException e) {
+                Log.d(TAG, "Could not prefetch slicedata for uri: " + uri, e);
+            }
+        }
+        Log.d(TAG, "Prefetched slice data: " + mSliceDataCache);
+    }
+
+    private void prefetchSliceDataInBackground(List<Uri> uris) {
+        if (uris.isEmpty() || mSliceDataCache.isFull()) {
+            return;
+        }
+        final List<Uri> prefetchUris = new ArrayList<>(uris);
+        ThreadUtils.postOnBackgroundThread(ThreadUtils.LANE_PREFETCH,
+                () -> prefetchSliceData(prefetchUris));
+    }
+
     @VisibleForTesting
     /**
      * Registers an IntentFilter in SysUI to notify changes to {@param sliceUri} when broadcasts to
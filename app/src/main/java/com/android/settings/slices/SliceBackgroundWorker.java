@@ -33,7 +33,6 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -46,7 +45,8 @@ import java.util.Map;
  * SettingsSliceProvider#shutdown()}.
  *
  * {@link SliceBackgroundWorker} caches the results, uses the cache to compare if there is any data
- * changed, and then notifies the Slice {@link Uri} to update.
+ * changed, and then notifies the Slice {@link Uri} to update. Changes are coalesced, and the
+ * interval between notifications adapts to how fast the host rebinds the Slice.
  *
  * It also stores all instances of all workers to ensure each worker is a Singleton.
  */
@@ -55,6 +55,7 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
     private static final String TAG = "SliceBackgroundWorker";
 
     private static final long SLICE_UPDATE_THROTTLE_INTERVAL = 300L;
+    private static final long SLICE_UPDATE_MAX_INTERVAL = 3000L;
 
     private static final Map<Uri, SliceBackgroundWorker> LIVE_WORKERS = new ArrayMap<>();
 
@@ -185,14 +186,34 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
         NotifySliceChangeHandler.getInstance().cancelSliceUpdate(this);
     }
 
+    /**
+     * Called when the host binds the Slice of {@code uri}, which completes a rebind requested by
+     * the last notification.
+     */
+    static void onSliceBound(Uri uri) {
+        final NotifySliceChangeHandler handler = NotifySliceChangeHandler.sHandler;
+        if (handler != null) {
+            handler.onSliceBound(uri);
+        }
+    }
+
+    /**
+     * Coalesces the updates of all workers into notifications to their Slices.
+     *
+     * <p>Each Slice is notified at most once per interval, and updates in between are merged into
+     * the next notification. The interval starts at {@link #SLICE_UPDATE_THROTTLE_INTERVAL} and
+     * follows twice the time the host takes to rebind the Slice after a notification. While a
+     * rebind is outstanding no further notification is sent, as the rebind reads the latest
+     * results anyway; if the host does not rebind within {@link #SLICE_UPDATE_MAX_INTERVAL}, the
+     * interval is doubled and the Slice is notified again.
+     */
     private static class NotifySliceChangeHandler extends Handler {
 
         private static final int MSG_UPDATE_SLICE = 1000;
 
-        private static NotifySliceChangeHandler sHandler;
+        private static volatile NotifySliceChangeHandler sHandler;
 
-        private final Map<Uri, Long> mLastUpdateTimeLookup = Collections.synchronizedMap(
-                new ArrayMap<>());
+        private final Map<Uri, UpdateState> mUpdateStates = new ArrayMap<>();
 
         private static NotifySliceChangeHandler getInstance() {
             if (sHandler == null) {
@@ -216,33 +237,103 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
 
             final SliceBackgroundWorker worker = (SliceBackgroundWorker) msg.obj;
             final Uri uri = worker.getUri();
-            final Context context = worker.getContext();
-            mLastUpdateTimeLookup.put(uri, SystemClock.uptimeMillis());
-            context.getContentResolver().notifyChange(uri, null);
+            synchronized (this) {
+                final UpdateState state = mUpdateStates.get(uri);
+                if (state == null) {
+                    return;
+                }
+                final long now = SystemClock.uptimeMillis();
+                if (state.mAwaitingBind) {
+                    // The host did not rebind after the last notification, back off.
+                    state.mInterval = Math.min(state.mInterval * 2, SLICE_UPDATE_MAX_INTERVAL);
+                }
+                state.mLastNotifyTime = now;
+                state.mAwaitingBind = true;
+                state.mNotifications++;
+            }
+            worker.getContext().getContentResolver().notifyChange(uri, null);
         }
 
-        private void updateSlice(SliceBackgroundWorker worker) {
+        private synchronized void updateSlice(SliceBackgroundWorker worker) {
+            final Uri uri = worker.getUri();
+            UpdateState state = mUpdateStates.get(uri);
+            if (state == null) {
+                state = new UpdateState(worker);
+                mUpdateStates.put(uri, state);
+            }
+            state.mUpdates++;
             if (hasMessages(MSG_UPDATE_SLICE, worker)) {
                 return;
             }
 
             final Message message = obtainMessage(MSG_UPDATE_SLICE, worker);
-            final long lastUpdateTime = mLastUpdateTimeLookup.getOrDefault(worker.getUri(), 0L);
-            if (lastUpdateTime == 0L) {
+            if (state.mLastNotifyTime == 0L) {
                 // Postpone the first update triggering by onSlicePinned() to avoid being too close
                 // to the first Slice bind.
-                sendMessageDelayed(message, SLICE_UPDATE_THROTTLE_INTERVAL);
-            } else if (SystemClock.uptimeMillis() - lastUpdateTime
-                    > SLICE_UPDATE_THROTTLE_INTERVAL) {
-                sendMessage(message);
+                sendMessageDelayed(message, state.mInterval);
             } else {
-                sendMessageAtTime(message, lastUpdateTime + SLICE_UPDATE_THROTTLE_INTERVAL);
+                sendMessageAtTime(message, getNextNotifyTime(state));
             }
         }
 
-        private void cancelSliceUpdate(SliceBackgroundWorker worker) {
+        private synchronized void onSliceBound(Uri uri) {
+            final UpdateState state = mUpdateStates.get(uri);
+            if (state == null || !state.mAwaitingBind) {
+                return;
+            }
+            final long now = SystemClock.uptimeMillis();
+            final long latency = now - state.mLastNotifyTime;
+            state.mAwaitingBind = false;
+            state.mBinds++;
+            state.mTotalBindLatency += latency;
+            final long target = Math.max(SLICE_UPDATE_THROTTLE_INTERVAL,
+                    Math.min(latency * 2, SLICE_UPDATE_MAX_INTERVAL));
+            state.mInterval = (state.mInterval + target) / 2;
+
+            // Bring a notification that was held back for this rebind forward.
+            final SliceBackgroundWorker worker = state.mWorker;
+            if (hasMessages(MSG_UPDATE_SLICE, worker)) {
+                removeMessages(MSG_UPDATE_SLICE, worker);
+                sendMessageAtTime(obtainMessage(MSG_UPDATE_SLICE, worker),
+                        getNextNotifyTime(state));
+            }
+        }
+
+        private synchronized void cancelSliceUpdate(SliceBackgroundWorker worker) {
             removeMessages(MSG_UPDATE_SLICE, worker);
-            mLastUpdateTimeLookup.remove(worker.getUri());
+            final UpdateState state = mUpdateStates.remove(worker.getUri());
+            if (state != null && state.mUpdates > 0) {
+                final long duration = Math.max(SystemClock.uptimeMillis() - state.mStartTime, 1);
+                Log.d(TAG, worker.getClass().getSimpleName() + ": " + state.mUpdates
+                        + " updates in " + duration + " ms ("
+                        + (state.mUpdates * 1000 / duration) + "/s) sent as "
+                        + state.mNotifications + " notifications, average rebind latency "
+                        + (state.mBinds > 0 ? state.mTotalBindLatency / state.mBinds : -1)
+                        + " ms, final interval " + state.mInterval + " ms");
+            }
         }
-    };
+
+        private static long getNextNotifyTime(UpdateState state) {
+            final long nextTime = state.mLastNotifyTime + (state.mAwaitingBind
+                    ? SLICE_UPDATE_MAX_INTERVAL : state.mInterval);
+            return Math.max(nextTime, SystemClock.uptimeMillis());
+        }
+    }
+
+    /** Notification state and statistics of one Slice. */
+    private static class UpdateState {
+        final SliceBackgroundWorker mWorker;
+        final long mStartTime = SystemClock.uptimeMillis();
+        long mInterval = SLICE_UPDATE_THROTTLE_INTERVAL;
+        long mLastNotifyTime;
+        boolean mAwaitingBind;
+        int mUpdates;
+        int mNotifications;
+        int mBinds;
+        long mTotalBindLatency;
+
+        UpdateState(SliceBackgroundWorker worker) {
+            mWorker = worker;
+        }
+    }
 }
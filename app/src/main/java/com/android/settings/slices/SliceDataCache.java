@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import android.net.Uri;
+import android.util.LruCache;
+
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Bounded, least recently used cache of the {@link SliceData} read from the slices database,
+ * shared by {@link SettingsSliceProvider} and invalidated by {@link SlicesIndexer}.
+ *
+ * <p>Every invalidation starts a new generation. Data read from the database in an earlier
+ * generation is not cached, so a load that raced with re-indexing cannot put back stale rows.
+ */
+class SliceDataCache {
+
+    @VisibleForTesting
+    static final int MAX_ENTRIES = 64;
+
+    private static final SliceDataCache sInstance = new SliceDataCache(MAX_ENTRIES);
+
+    private final LruCache<Uri, SliceData> mCache;
+    private int mGeneration;
+
+    @VisibleForTesting
+    SliceDataCache(int maxEntries) {
+        mCache = new LruCache<>(maxEntries);
+    }
+
+    static SliceDataCache getInstance() {
+        return sInstance;
+    }
+
+    /** Returns the cached data of {@code uri} and marks it as recently used, or null. */
+    SliceData get(Uri uri) {
+        return mCache.get(uri);
+    }
+
+    /** Returns the generation to pass to {@link #put} for data read from now on. */
+    synchronized int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Caches {@code sliceData}, evicting the least recently used entry if the cache is full.
+     *
+     * @param generation the value of {@link #getGeneration()} before the data was read
+     */
+    synchronized void put(Uri uri, SliceData sliceData, int generation) {
+        if (generation == mGeneration) {
+            mCache.put(uri, sliceData);
+        }
+    }
+
+    /**
+     * Caches prefetched {@code sliceData} only if there is free room, so that prefetching never
+     * evicts slices that were actually bound.
+     *
+     * @return false if the cache is full
+     */
+    synchronized boolean putIfRoom(Uri uri, SliceData sliceData, int generation) {
+        if (mCache.size() >= mCache.maxSize()) {
+            return false;
+        }
+        if (generation == mGeneration) {
+            mCache.put(uri, sliceData);
+        }
+        return true;
+    }
+
+    synchronized boolean isFull() {
+        return mCache.size() >= mCache.maxSize();
+    }
+
+    /** Drops all entries, e.g. after the slices database was re-indexed. */
+    synchronized void invalidate() {
+        mGeneration++;
+        mCache.evictAll();
+    }
+
+    @Override
+    public String toString() {
+        return "SliceDataCache{" + mCache.size() + "/" + mCache.maxSize() + " entries, "
+                + mCache.hitCount() + " hits, " + mCache.missCount() + " misses}";
+    }
+}
@@ -35,6 +35,7 @@ import android.content.res.Resources;
 import android.content.res.XmlResourceParser;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemProperties;
 import android.provider.SearchIndexableResource;
 import android.provider.SettingsSlicesContract;
 import android.text.TextUtils;
@@ -67,6 +68,8 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Converts all Slice sources into {@link SliceData}.
@@ -80,6 +83,10 @@ class SliceDataConverter {
 
     private static final String NODE_NAME_PREFERENCE_SCREEN = "PreferenceScreen";
 
+    /** Set to true to crawl the providers one by one on the calling thread, e.g. to compare. */
+    @VisibleForTesting
+    static final String PROPERTY_SERIAL_CRAWL = "debug.settings.slices_serial_crawl";
+
     private final MetricsFeatureProvider mMetricsFeatureProvider;
     private Context mContext;
 
@@ -99,30 +106,68 @@ class SliceDataConverter {
      * {@link BasePreferenceController}.
      */
     public List<SliceData> getSliceData() {
-        List<SliceData> sliceData = new ArrayList<>();
+        final List<SliceData> sliceData =
+                getSliceDataFromProviders(new ArrayList<>(getSliceDataProviders()));
+
+        final List<SliceData> a11ySliceData = getAccessibilitySliceData();
+        sliceData.addAll(a11ySliceData);
+        return sliceData;
+    }
 
-        final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(mContext)
+    /**
+     * @return the search index providers whose XML resources are crawled for slices.
+     */
+    Collection<SearchIndexableData> getSliceDataProviders() {
+        return FeatureFactory.getFactory(mContext)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
+    }
 
-        for (SearchIndexableData bundle : bundles) {
-            final String fragmentName = bundle.getTargetClass().getName();
+    /**
+     * @return the {@link SliceData} of the XML resources of a single provider from
+     * {@link #getSliceDataProviders()}.
+     */
+    List<SliceData> getSliceDataFromProvider(SearchIndexableData bundle) {
+        final String fragmentName = bundle.getTargetClass().getName();
 
-            final SearchIndexProvider provider = bundle.getSearchIndexProvider();
+        final SearchIndexProvider provider = bundle.getSearchIndexProvider();
 
-            // CodeInspection test guards against the null check. Keep check in case of bad actors.
-            if (provider == null) {
-                Log.e(TAG, fragmentName + " dose not implement Search Index Provider");
-                continue;
+        // CodeInspection test guards against the null check. Keep check in case of bad actors.
+        if (provider == null) {
+            Log.e(TAG, fragmentName + " dose not implement Search Index Provider");
+            return new ArrayList<>();
+        }
+
+        return getSliceDataFromProvider(provider, fragmentName);
+    }
+
+    /**
+     * @return the {@link SliceData} of {@code providers}, in the order of the providers.
+     *
+     * The providers are crawled in parallel unless {@link #PROPERTY_SERIAL_CRAWL} is set. Each
+     * provider's data is built independently and the results are concatenated in provider order,
+     * so both paths return the same list and rows with the same key are replaced in the same order
+     * when indexed.
+     */
+    List<SliceData> getSliceDataFromProviders(List<SearchIndexableData> providers) {
+        if (providers.size() <= 1 || isSerialCrawl()) {
+            final List<SliceData> sliceData = new ArrayList<>();
+            for (SearchIndexableData bundle : providers) {
+                sliceData.addAll(getSliceDataFromProvider(bundle));
             }
+            return sliceData;
+        }
 
-            final List<SliceData> providerSliceData = getSliceDataFromProvider(provider,
-                    fragmentName);
-            sliceData.addAll(providerSliceData);
+        final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return pool.invoke(new CrawlTask(providers, 0, providers.size()));
+        } finally {
+            pool.shutdown();
         }
+    }
 
-        final List<SliceData> a11ySliceData = getAccessibilitySliceData();
-        sliceData.addAll(a11ySliceData);
-        return sliceData;
+    @VisibleForTesting
+    boolean isSerialCrawl() {
+        return SystemProperties.getBoolean(PROPERTY_SERIAL_CRAWL, false);
     }
 
     private List<SliceData> getSliceDataFromProvider(SearchIndexProvider provider,
@@ -257,7 +302,10 @@ class SliceDataConverter {
         return xmlSliceData;
     }
 
-    private List<SliceData> getAccessibilitySliceData() {
+    /**
+     * @return the {@link SliceData} of the allowed accessibility services that are installed.
+     */
+    List<SliceData> getAccessibilitySliceData() {
         final List<SliceData> sliceData = new ArrayList<>();
 
         final String accessibilityControllerClassName =
@@ -313,6 +361,33 @@ class SliceDataConverter {
         return sliceData;
     }
 
+    /** Crawls a range of providers, splitting it in halves until single providers remain. */
+    private class CrawlTask extends RecursiveTask<List<SliceData>> {
+        private final List<SearchIndexableData> mProviders;
+        private final int mStart;
+        private final int mEnd;
+
+        CrawlTask(List<SearchIndexableData> providers, int start, int end) {
+            mProviders = providers;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        protected List<SliceData> compute() {
+            if (mEnd - mStart == 1) {
+                return getSliceDataFromProvider(mProviders.get(mStart));
+            }
+            final int middle = (mStart + mEnd) >>> 1;
+            final CrawlTask first = new CrawlTask(mProviders, mStart, middle);
+            first.fork();
+            final List<SliceData> second = new CrawlTask(mProviders, middle, mEnd).compute();
+            final List<SliceData> sliceData = new ArrayList<>(first.join());
+            sliceData.addAll(second);
+            return sliceData;
+        }
+    }
+
     @VisibleForTesting
     List<AccessibilityServiceInfo> getAccessibilityServiceInfoList() {
         final AccessibilityManager accessibilityManager = AccessibilityManager.getInstance(
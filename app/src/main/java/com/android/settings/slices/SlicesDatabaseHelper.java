@@ -16,15 +16,19 @@
 
 package com.android.settings.slices;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.os.Build;
+import android.util.ArrayMap;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Defines the schema for the Slices database.
@@ -36,10 +40,25 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "slices_index.db";
     private static final String SHARED_PREFS_TAG = "slices_shared_prefs";
 
-    private static final int DATABASE_VERSION = 8;
+    private static final int DATABASE_VERSION = 9;
 
     public interface Tables {
         String TABLE_SLICES_INDEX = "slices_index";
+        String TABLE_PROVIDER_HASHES = "slices_provider_hashes";
+    }
+
+    public interface ProviderHashColumns {
+        /**
+         * Primary key of the table. Class name of the fragment whose search index provider was
+         * crawled.
+         */
+        String FRAGMENT = "fragment";
+
+        /**
+         * Hash of the provider's rows when they were last written, see
+         * {@link SlicesIndexer#getSliceDataHash}.
+         */
+        String HASH = "hash";
     }
 
     public interface IndexColumns {
@@ -137,6 +156,15 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
                     +
                     ");";
 
+    private static final String CREATE_PROVIDER_HASHES_TABLE =
+            "CREATE TABLE " + Tables.TABLE_PROVIDER_HASHES +
+                    "(" +
+                    ProviderHashColumns.FRAGMENT +
+                    " TEXT PRIMARY KEY, " +
+                    ProviderHashColumns.HASH +
+                    " INTEGER" +
+                    ");";
+
     private final Context mContext;
 
     private static SlicesDatabaseHelper sSingleton;
@@ -172,17 +200,53 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
      * {@link#isNewIndexingState(Context)} will return {@code true}.
      */
     void reconstruct(SQLiteDatabase db) {
+        clearIndexedState();
+        dropTables(db);
+        createDatabases(db);
+    }
+
+    /**
+     * Un-marks the state of the data such that {@link #isSliceDataIndexed()} returns
+     * {@code false} until {@link #setIndexedState()} is called again.
+     */
+    void clearIndexedState() {
         mContext.getSharedPreferences(SHARED_PREFS_TAG, Context.MODE_PRIVATE)
                 .edit()
                 .clear()
                 .apply();
-        dropTables(db);
-        createDatabases(db);
+    }
+
+    /**
+     * @return Map: fragment class name => hash of its provider when it was last crawled.
+     */
+    Map<String, Long> getProviderHashes(SQLiteDatabase db) {
+        final Map<String, Long> hashes = new ArrayMap<>();
+        try (Cursor cursor = db.query(Tables.TABLE_PROVIDER_HASHES,
+                new String[]{ProviderHashColumns.FRAGMENT, ProviderHashColumns.HASH},
+                null /* selection */, null /* selectionArgs */, null /* groupBy */,
+                null /* having */, null /* orderBy */)) {
+            while (cursor.moveToNext()) {
+                hashes.put(cursor.getString(0), cursor.getLong(1));
+            }
+        }
+        return hashes;
+    }
+
+    void setProviderHash(SQLiteDatabase db, String fragmentName, long hash) {
+        final ContentValues values = new ContentValues();
+        values.put(ProviderHashColumns.FRAGMENT, fragmentName);
+        values.put(ProviderHashColumns.HASH, hash);
+        db.replaceOrThrow(Tables.TABLE_PROVIDER_HASHES, null /* nullColumnHack */, values);
+    }
+
+    void deleteProviderHash(SQLiteDatabase db, String fragmentName) {
+        db.delete(Tables.TABLE_PROVIDER_HASHES, ProviderHashColumns.FRAGMENT + " = ?",
+                new String[]{fragmentName});
     }
 
     /**
      * Marks the current state of the device for the validity of the data. Should be called after
-     * a full index of the TABLE_SLICES_INDEX.
+     * TABLE_SLICES_INDEX is brought up to date.
      */
     public void setIndexedState() {
         setBuildIndexed();
@@ -200,11 +264,13 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
 
     private void createDatabases(SQLiteDatabase db) {
         db.execSQL(CREATE_SLICES_TABLE);
+        db.execSQL(CREATE_PROVIDER_HASHES_TABLE);
         Log.d(TAG, "Created databases");
     }
 
     private void dropTables(SQLiteDatabase db) {
         db.execSQL("DROP TABLE IF EXISTS " + Tables.TABLE_SLICES_INDEX);
+        db.execSQL("DROP TABLE IF EXISTS " + Tables.TABLE_PROVIDER_HASHES);
     }
 
     private void setBuildIndexed() {
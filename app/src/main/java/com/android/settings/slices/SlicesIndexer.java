@@ -16,29 +16,67 @@
 
 package com.android.settings.slices;
 
-import android.content.ContentValues;
+import android.app.settings.SettingsEnums;
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.ArrayMap;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.accessibility.AccessibilitySlicePreferenceController;
 import com.android.settings.core.BasePreferenceController;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
 import com.android.settings.slices.SlicesDatabaseHelper.Tables;
+import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
+import com.android.settingslib.search.SearchIndexableData;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Manages the conversion of {@link DashboardFragment} and {@link BasePreferenceController} to
  * indexable data {@link SliceData} to be stored for Slices.
+ *
+ * <p>Every provider is crawled, but only the rows of providers whose rows changed since they were
+ * last indexed are written again. Each provider's rows are compared through a hash of all of
+ * their columns, so e.g. a locale change only rewrites the providers with translated strings.
  */
 class SlicesIndexer implements Runnable {
 
     private static final String TAG = "SlicesIndexer";
 
+    private static final String METRICS_KEY_INDEXING_TIME = "slices_indexing_time_ms";
+    private static final String METRICS_KEY_INDEXED_ROWS = "slices_indexed_rows";
+    private static final String METRICS_KEY_UPDATED_PROVIDERS = "slices_updated_providers";
+
+    private static final String INSERT_SLICE_SQL = "INSERT OR REPLACE INTO "
+            + Tables.TABLE_SLICES_INDEX + " ("
+            + IndexColumns.KEY + ", "
+            + IndexColumns.SLICE_URI + ", "
+            + IndexColumns.TITLE + ", "
+            + IndexColumns.SUMMARY + ", "
+            + IndexColumns.SCREENTITLE + ", "
+            + IndexColumns.KEYWORDS + ", "
+            + IndexColumns.ICON_RESOURCE + ", "
+            + IndexColumns.FRAGMENT + ", "
+            + IndexColumns.CONTROLLER + ", "
+            + IndexColumns.SLICE_TYPE + ", "
+            + IndexColumns.UNAVAILABLE_SLICE_SUBTITLE + ", "
+            + IndexColumns.PUBLIC_SLICE
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String A11Y_CONTROLLER =
+            AccessibilitySlicePreferenceController.class.getName();
+
     private Context mContext;
 
     private SlicesDatabaseHelper mHelper;
@@ -69,56 +107,166 @@ class SlicesIndexer implements Runnable {
         final SQLiteDatabase database = mHelper.getWritableDatabase();
 
         long startTime = System.currentTimeMillis();
+        int rowCount;
+        int updatedProviders = 0;
         database.beginTransaction();
         try {
-            mHelper.reconstruct(database);
-            List<SliceData> indexData = getSliceData();
-            insertSliceData(database, indexData);
+            mHelper.clearIndexedState();
+            final SliceDataConverter converter = getSliceDataConverter();
+            final Map<String, Long> indexedHashes = mHelper.getProviderHashes(database);
+            final List<SearchIndexableData> providers =
+                    new ArrayList<>(converter.getSliceDataProviders());
 
-            mHelper.setIndexedState();
+            // Rows grouped by provider, in provider order.
+            final Map<String, List<SliceData>> providerData = new ArrayMap<>();
+            for (SearchIndexableData provider : providers) {
+                providerData.put(provider.getTargetClass().getName(), new ArrayList<>());
+            }
+            for (SliceData dataRow : converter.getSliceDataFromProviders(providers)) {
+                providerData.get(dataRow.getFragmentClassName()).add(dataRow);
+            }
+
+            final List<SliceData> indexData = new ArrayList<>();
+            for (SearchIndexableData provider : providers) {
+                final String fragmentName = provider.getTargetClass().getName();
+                final List<SliceData> rows = providerData.get(fragmentName);
+                final long hash = getSliceDataHash(rows);
+                final Long indexedHash = indexedHashes.get(fragmentName);
+                if (indexedHash != null && indexedHash == hash) {
+                    continue;
+                }
+                deleteProviderSliceData(database, fragmentName);
+                mHelper.setProviderHash(database, fragmentName, hash);
+                indexData.addAll(rows);
+                updatedProviders++;
+            }
 
-            // TODO (b/71503044) Log indexing time.
-            Log.d(TAG,
-                    "Indexing slices database took: " + (System.currentTimeMillis() - startTime));
+            // Remove providers that no longer exist.
+            for (String fragmentName : indexedHashes.keySet()) {
+                if (!providerData.containsKey(fragmentName)) {
+                    deleteProviderSliceData(database, fragmentName);
+                    mHelper.deleteProviderHash(database, fragmentName);
+                }
+            }
+
+            // Accessibility slices come from installed services rather than XML.
+            database.delete(Tables.TABLE_SLICES_INDEX, IndexColumns.CONTROLLER + " = ?",
+                    new String[]{A11Y_CONTROLLER});
+            indexData.addAll(converter.getAccessibilitySliceData());
+
+            rowCount = insertSliceData(database, indexData);
+
+            mHelper.setIndexedState();
             database.setTransactionSuccessful();
         } finally {
             database.endTransaction();
         }
+        // Cached rows may have changed or moved to another uri.
+        SliceDataCache.getInstance().invalidate();
+
+        final int indexingTime = (int) (System.currentTimeMillis() - startTime);
+        Log.d(TAG, "Indexing slices database took: " + indexingTime + " ms, updated "
+                + updatedProviders + " providers, inserted " + rowCount + " rows");
+        final MetricsFeatureProvider metricsFeatureProvider =
+                FeatureFactory.getFactory(mContext).getMetricsFeatureProvider();
+        metricsFeatureProvider.action(SettingsEnums.PAGE_UNKNOWN, SettingsEnums.ACTION_UNKNOWN,
+                SettingsEnums.SLICE, METRICS_KEY_INDEXING_TIME, indexingTime);
+        metricsFeatureProvider.action(SettingsEnums.PAGE_UNKNOWN, SettingsEnums.ACTION_UNKNOWN,
+                SettingsEnums.SLICE, METRICS_KEY_INDEXED_ROWS, rowCount);
+        metricsFeatureProvider.action(SettingsEnums.PAGE_UNKNOWN, SettingsEnums.ACTION_UNKNOWN,
+                SettingsEnums.SLICE, METRICS_KEY_UPDATED_PROVIDERS, updatedProviders);
     }
 
     @VisibleForTesting
-    List<SliceData> getSliceData() {
+    SliceDataConverter getSliceDataConverter() {
         return FeatureFactory.getFactory(mContext)
                 .getSlicesFeatureProvider()
-                .getSliceDataConverter(mContext)
-                .getSliceData();
+                .getSliceDataConverter(mContext);
     }
 
+    /**
+     * Inserts {@code indexData} with a single compiled statement.
+     *
+     * @return the number of inserted rows
+     */
     @VisibleForTesting
-    void insertSliceData(SQLiteDatabase database, List<SliceData> indexData) {
-        ContentValues values;
-
-        for (SliceData dataRow : indexData) {
-            values = new ContentValues();
-            values.put(IndexColumns.KEY, dataRow.getKey());
-            values.put(IndexColumns.SLICE_URI, dataRow.getUri().toSafeString());
-            values.put(IndexColumns.TITLE, dataRow.getTitle());
-            values.put(IndexColumns.SUMMARY, dataRow.getSummary());
-            final CharSequence screenTitle = dataRow.getScreenTitle();
-            if (screenTitle != null) {
-                values.put(IndexColumns.SCREENTITLE, screenTitle.toString());
+    int insertSliceData(SQLiteDatabase database, List<SliceData> indexData) {
+        final SQLiteStatement statement = database.compileStatement(INSERT_SLICE_SQL);
+        try {
+            for (SliceData dataRow : indexData) {
+                statement.clearBindings();
+                bindStringOrNull(statement, 1, dataRow.getKey());
+                bindStringOrNull(statement, 2, dataRow.getUri().toSafeString());
+                bindStringOrNull(statement, 3, dataRow.getTitle());
+                bindStringOrNull(statement, 4, dataRow.getSummary());
+                final CharSequence screenTitle = dataRow.getScreenTitle();
+                bindStringOrNull(statement, 5, screenTitle != null ? screenTitle.toString() : null);
+                bindStringOrNull(statement, 6, dataRow.getKeywords());
+                statement.bindLong(7, dataRow.getIconResource());
+                bindStringOrNull(statement, 8, dataRow.getFragmentClassName());
+                bindStringOrNull(statement, 9, dataRow.getPreferenceController());
+                statement.bindLong(10, dataRow.getSliceType());
+                bindStringOrNull(statement, 11, dataRow.getUnavailableSliceSubtitle());
+                statement.bindLong(12, dataRow.isPublicSlice() ? 1 : 0);
+                statement.executeInsert();
             }
-            values.put(IndexColumns.KEYWORDS, dataRow.getKeywords());
-            values.put(IndexColumns.ICON_RESOURCE, dataRow.getIconResource());
-            values.put(IndexColumns.FRAGMENT, dataRow.getFragmentClassName());
-            values.put(IndexColumns.CONTROLLER, dataRow.getPreferenceController());
-            values.put(IndexColumns.SLICE_TYPE, dataRow.getSliceType());
-            values.put(IndexColumns.UNAVAILABLE_SLICE_SUBTITLE,
-                    dataRow.getUnavailableSliceSubtitle());
-            values.put(IndexColumns.PUBLIC_SLICE, dataRow.isPublicSlice());
-
-            database.replaceOrThrow(Tables.TABLE_SLICES_INDEX, null /* nullColumnHack */,
-                    values);
+        } finally {
+            statement.close();
+        }
+        return indexData.size();
+    }
+
+    /** Returns a hash of every column of {@code rows}, in order. */
+    @VisibleForTesting
+    static long getSliceDataHash(List<SliceData> rows) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        for (SliceData dataRow : rows) {
+            updateDigest(digest, dataRow.getKey());
+            updateDigest(digest, dataRow.getUri().toSafeString());
+            updateDigest(digest, dataRow.getTitle());
+            updateDigest(digest, dataRow.getSummary());
+            final CharSequence screenTitle = dataRow.getScreenTitle();
+            updateDigest(digest, screenTitle != null ? screenTitle.toString() : null);
+            updateDigest(digest, dataRow.getKeywords());
+            updateDigest(digest, dataRow.getPreferenceController());
+            updateDigest(digest, dataRow.getUnavailableSliceSubtitle());
+            buffer.clear();
+            buffer.putInt(dataRow.getIconResource()).putInt(dataRow.getSliceType());
+            digest.update(buffer.array());
+            digest.update((byte) (dataRow.isPublicSlice() ? 1 : 0));
+        }
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    // Length-prefixed, so that adjacent columns cannot shift into each other.
+    private static void updateDigest(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(-1).array());
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    // Rows of the fragment's XML only; accessibility service rows share AccessibilitySettings.
+    private void deleteProviderSliceData(SQLiteDatabase database, String fragmentName) {
+        database.delete(Tables.TABLE_SLICES_INDEX,
+                IndexColumns.FRAGMENT + " = ? AND " + IndexColumns.CONTROLLER + " != ?",
+                new String[]{fragmentName, A11Y_CONTROLLER});
+    }
+
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
         }
     }
-}
\ No newline at end of file
+}
@@ -25,6 +25,7 @@ import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.network.EraseEuiccDataController;
 import com.android.settings.network.NetworkResetPreferenceController;
 import com.android.settings.search.BaseSearchIndexProvider;
+import com.android.settings.search.NonIndexableKeysCache;
 import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.core.lifecycle.Lifecycle;
 import com.android.settingslib.search.SearchIndexable;
@@ -81,5 +82,10 @@ public class ResetDashboardFragment extends DashboardFragment {
                         Context context) {
                     return buildPreferenceControllers(context, null /* lifecycle */);
                 }
+
+                @Override
+                protected int getAvailabilityInputs() {
+                    return NonIndexableKeysCache.INPUT_USER_RESTRICTIONS;
+                }
             };
 }
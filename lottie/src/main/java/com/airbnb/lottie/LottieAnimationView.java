@@ -329,6 +329,7 @@ import static com.airbnb.lottie.RenderMode.HARDWARE;
       cancelAnimation();
       wasAnimatingWhenDetached = true;
     }
+    lottieDrawable.clearFrameCache();
     super.onDetachedFromWindow();
   }
 
@@ -997,6 +998,17 @@ import static com.airbnb.lottie.RenderMode.HARDWARE;
     enableOrDisableHardwareLayer();
   }
 
+  /**
+   * Caches rendered frames in bitmaps of up to {@code maxBytes} in total, so that later loops of
+   * the animation only draw bitmaps. The bitmaps are freed when the view is detached.
+   * Pass 0 to disable the cache.
+   *
+   * @see LottieDrawable#setFrameCacheMaxBytes(long)
+   */
+  public void setFrameCacheMaxBytes(long maxBytes) {
+    lottieDrawable.setFrameCacheMaxBytes(maxBytes);
+  }
+
   /**
    * Sets whether to apply opacity to the each layer instead of shape.
    * <p>
@@ -1022,7 +1034,7 @@ import static com.airbnb.lottie.RenderMode.HARDWARE;
    * <b>Attention:</b> Disable the extra scale mode can downgrade the performance and may lead to larger memory footprint. Please only disable this
    * mode when using animation with a reasonable dimension (smaller than screen size).
    *
-   * @see LottieDrawable#drawWithNewAspectRatio(Canvas)
+   * @see LottieDrawable#drawWithNewAspectRatio(Canvas, int)
    */
   public void disableExtraScaleModeInFitXY() {
     lottieDrawable.disableExtraScaleModeInFitXY();
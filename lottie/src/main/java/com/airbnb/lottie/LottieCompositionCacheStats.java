@@ -0,0 +1,70 @@
+package com.airbnb.lottie;
+
+/**
+ * A snapshot of the hit and miss counts of the composition caches, see
+ * {@link LottieCompositionFactory#getCacheStats()}.
+ */
+public class LottieCompositionCacheStats {
+  private final int memoryHitCount;
+  private final int memoryMissCount;
+  private final int memoryEvictionCount;
+  private final int memorySize;
+  private final int memoryMaxSize;
+  private final int diskHitCount;
+  private final int diskMissCount;
+
+  LottieCompositionCacheStats(int memoryHitCount, int memoryMissCount, int memoryEvictionCount,
+      int memorySize, int memoryMaxSize, int diskHitCount, int diskMissCount) {
+    this.memoryHitCount = memoryHitCount;
+    this.memoryMissCount = memoryMissCount;
+    this.memoryEvictionCount = memoryEvictionCount;
+    this.memorySize = memorySize;
+    this.memoryMaxSize = memoryMaxSize;
+    this.diskHitCount = diskHitCount;
+    this.diskMissCount = diskMissCount;
+  }
+
+  /** Number of requests for a cache key that were served by the in-memory cache. */
+  public int getMemoryHitCount() {
+    return memoryHitCount;
+  }
+
+  /** Number of requests for a cache key that were not in the in-memory cache. */
+  public int getMemoryMissCount() {
+    return memoryMissCount;
+  }
+
+  /** Number of compositions evicted from the in-memory cache to stay within its budget. */
+  public int getMemoryEvictionCount() {
+    return memoryEvictionCount;
+  }
+
+  /** Estimated size in bytes of the compositions in the in-memory cache. */
+  public int getMemorySize() {
+    return memorySize;
+  }
+
+  /**
+   * Budget in bytes of the in-memory cache, see
+   * {@link LottieCompositionFactory#setMaxCacheSizeBytes(int)}.
+   */
+  public int getMemoryMaxSize() {
+    return memoryMaxSize;
+  }
+
+  /** Number of raw resources loaded from their pre-parsed copy in the disk cache. */
+  public int getDiskHitCount() {
+    return diskHitCount;
+  }
+
+  /** Number of raw resources that had to be parsed from json and were then written to disk. */
+  public int getDiskMissCount() {
+    return diskMissCount;
+  }
+
+  @Override public String toString() {
+    return "LottieCompositionCacheStats{memory: " + memoryHitCount + " hits, " + memoryMissCount
+        + " misses, " + memoryEvictionCount + " evictions, " + memorySize + "/" + memoryMaxSize
+        + " bytes; disk: " + diskHitCount + " hits, " + diskMissCount + " misses}";
+  }
+}
@@ -1,6 +1,7 @@
 package com.airbnb.lottie;
 
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
@@ -8,17 +9,23 @@ import android.graphics.BitmapFactory;
 import android.os.Build;
 
 import com.airbnb.lottie.model.LottieCompositionCache;
+import com.airbnb.lottie.model.LottieCompositionDiskCache;
 import com.airbnb.lottie.network.NetworkFetcher;
 import com.airbnb.lottie.parser.LottieCompositionMoshiParser;
+import com.airbnb.lottie.parser.moshi.JsonBinaryConverter;
 import com.airbnb.lottie.parser.moshi.JsonReader;
 
+import com.airbnb.lottie.utils.Logger;
 import com.airbnb.lottie.utils.Utils;
 import org.json.JSONObject;
 
 import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -28,6 +35,8 @@ import java.util.zip.ZipInputStream;
 import androidx.annotation.Nullable;
 import androidx.annotation.RawRes;
 import androidx.annotation.WorkerThread;
+import okio.Buffer;
+import okio.BufferedSource;
 
 import static com.airbnb.lottie.parser.moshi.JsonReader.*;
 import static com.airbnb.lottie.utils.Utils.closeQuietly;
@@ -37,7 +46,9 @@ import static okio.Okio.source;
 /**
  * Helpers to create or cache a LottieComposition.
  * <p>
- * All factory methods take a cache key. The animation will be stored in an LRU cache for future use.
+ * All factory methods take a cache key. The animation will be stored in an LRU cache for future use,
+ * which is bounded by the estimated memory of the compositions it holds. Raw resources are also
+ * cached on disk in a pre-parsed binary encoding, see {@link #fromRawResSync(Context, int, String)}.
  * In-progress tasks will also be held so they can be returned for subsequent requests for the same
  * animation prior to the cache being populated.
  */
@@ -54,11 +65,34 @@ public class LottieCompositionFactory {
   }
 
   /**
-   * Set the maximum number of compositions to keep cached in memory.
+   * Set the maximum number of compositions of an average size to keep cached in memory.
    * This must be > 0.
+   *
+   * @deprecated the cache is bounded by the estimated size of its compositions, use
+   * {@link #setMaxCacheSizeBytes(int)}.
    */
+  @Deprecated
   public static void setMaxCacheSize(int size) {
-    LottieCompositionCache.getInstance().resize(size);
+    setMaxCacheSizeBytes(size * LottieCompositionCache.AVERAGE_COMPOSITION_SIZE);
+  }
+
+  /**
+   * Set the maximum estimated memory in bytes of the compositions to keep cached in memory.
+   * This must be > 0.
+   */
+  public static void setMaxCacheSizeBytes(int maxSize) {
+    LottieCompositionCache.getInstance().resize(maxSize);
+  }
+
+  /**
+   * Returns the hit and miss counts of the in-memory and disk caches since the process started.
+   */
+  public static LottieCompositionCacheStats getCacheStats() {
+    LottieCompositionCache memoryCache = LottieCompositionCache.getInstance();
+    LottieCompositionDiskCache diskCache = LottieCompositionDiskCache.peekInstance();
+    return new LottieCompositionCacheStats(memoryCache.hitCount(), memoryCache.missCount(),
+        memoryCache.evictionCount(), memoryCache.size(), memoryCache.maxSize(),
+        diskCache == null ? 0 : diskCache.hitCount(), diskCache == null ? 0 : diskCache.missCount());
   }
 
   /**
@@ -224,17 +258,108 @@ public class LottieCompositionFactory {
    * Note: to correctly load dark mode (-night) resources, make sure you pass Activity as a context (instead of e.g. the application context).
    * The Activity won't be leaked.
    *
+   * Json resources are converted to the binary encoding of {@link JsonBinaryConverter} the first
+   * time they are parsed, and cached on disk until the app, the OS or its resource overlays change.
+   *
    * Pass null as the cache key to skip caching.
    */
   @WorkerThread
   public static LottieResult<LottieComposition> fromRawResSync(Context context, @RawRes int rawRes, @Nullable String cacheKey) {
     try {
-      return fromJsonInputStreamSync(context.getResources().openRawResource(rawRes), cacheKey);
-    } catch (Resources.NotFoundException e) {
+      ByteBuffer binary = mapBinaryRawRes(context.getResources(), rawRes);
+      if (binary != null) {
+        return fromBinarySync(binary, cacheKey);
+      }
+      if (cacheKey == null) {
+        return fromJsonInputStreamSync(context.getResources().openRawResource(rawRes), null);
+      }
+      return fromRawResDiskCacheSync(context, rawRes, cacheKey);
+    } catch (Resources.NotFoundException | IOException e) {
       return new LottieResult<>(e);
     }
   }
 
+  /**
+   * Parses the binary encoding of a raw resource from the disk cache, or converts the resource and
+   * writes it to the disk cache. The disk cache is keyed by resource id and day/night even if the
+   * caller passed another cache key, since it outlives the process.
+   */
+  @WorkerThread
+  private static LottieResult<LottieComposition> fromRawResDiskCacheSync(
+      Context context, @RawRes int rawRes, String cacheKey) throws IOException {
+    LottieCompositionDiskCache diskCache = LottieCompositionDiskCache.getInstance(context);
+    String diskCacheKey = rawResCacheKey(context, rawRes);
+    ByteBuffer cached = diskCache.get(diskCacheKey);
+    if (cached != null) {
+      LottieResult<LottieComposition> result = fromBinarySync(cached, cacheKey);
+      if (result.getValue() != null) {
+        return result;
+      }
+      Logger.warning("Discarding unreadable cached composition " + diskCacheKey, result.getException());
+      diskCache.remove(diskCacheKey);
+    }
+
+    byte[] binary;
+    InputStream stream = context.getResources().openRawResource(rawRes);
+    try {
+      BufferedSource source = buffer(source(stream));
+      if (isBinary(source)) {
+        // A compressed binary resource, which doesn't need to be converted.
+        return fromBinarySync(ByteBuffer.wrap(source.readByteArray()), cacheKey);
+      }
+      Buffer sink = new Buffer();
+      JsonBinaryConverter.convert(of(source), sink);
+      binary = sink.readByteArray();
+    } finally {
+      closeQuietly(stream);
+    }
+    diskCache.put(diskCacheKey, binary);
+    return fromBinarySync(ByteBuffer.wrap(binary), cacheKey);
+  }
+
+  @WorkerThread
+  private static LottieResult<LottieComposition> fromBinarySync(ByteBuffer binary, @Nullable String cacheKey) {
+    int size = binary.remaining();
+    JsonReader reader;
+    try {
+      reader = of(binary);
+    } catch (IOException e) {
+      return new LottieResult<>(e);
+    }
+    return fromJsonReaderSyncInternal(reader, cacheKey, true, size, true);
+  }
+
+  /**
+   * Memory-maps a raw resource that holds the binary encoding written by {@link JsonBinaryConverter}.
+   * Returns null if the resource is JSON, or if it is compressed in the APK and cannot be mapped.
+   */
+  @Nullable
+  private static ByteBuffer mapBinaryRawRes(Resources resources, @RawRes int rawRes) {
+    AssetFileDescriptor fd;
+    try {
+      fd = resources.openRawResourceFd(rawRes);
+    } catch (Resources.NotFoundException e) {
+      // Compressed resources can only be streamed.
+      return null;
+    }
+    FileInputStream stream = null;
+    try {
+      if (fd.getLength() == AssetFileDescriptor.UNKNOWN_LENGTH) {
+        return null;
+      }
+      stream = fd.createInputStream();
+      ByteBuffer buffer = stream.getChannel()
+          .map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength());
+      return isBinary(buffer) ? buffer : null;
+    } catch (IOException e) {
+      Logger.warning("Unable to map raw resource " + rawRes, e);
+      return null;
+    } finally {
+      closeQuietly(stream);
+      closeQuietly(fd);
+    }
+  }
+
   private static String rawResCacheKey(Context context, @RawRes int resId) {
     return "rawRes" + (isNightMode(context) ? "_night_" : "_day_") + resId;
   }
@@ -262,7 +387,8 @@ public class LottieCompositionFactory {
   }
 
   /**
-   * Return a LottieComposition for the given InputStream to json.
+   * Return a LottieComposition for the given InputStream to json, or to its binary encoding written
+   * by {@link JsonBinaryConverter}.
    */
   @WorkerThread
   public static LottieResult<LottieComposition> fromJsonInputStreamSync(InputStream stream, @Nullable String cacheKey) {
@@ -273,7 +399,16 @@ public class LottieCompositionFactory {
   @WorkerThread
   private static LottieResult<LottieComposition> fromJsonInputStreamSync(InputStream stream, @Nullable String cacheKey, boolean close) {
     try {
-      return fromJsonReaderSync(of(buffer(source(stream))), cacheKey);
+      BufferedSource bufferedSource = buffer(source(stream));
+      if (isBinary(bufferedSource)) {
+        return fromBinarySync(ByteBuffer.wrap(bufferedSource.readByteArray()), cacheKey);
+      }
+      // Read the json up front, so that its size can be used to estimate the composition's.
+      Buffer json = new Buffer();
+      json.writeAll(bufferedSource);
+      return fromJsonReaderSyncInternal(of(json), cacheKey, true, json.size(), false);
+    } catch (IOException e) {
+      return new LottieResult<>(e);
     } finally {
       if (close) {
         closeQuietly(stream);
@@ -327,8 +462,9 @@ public class LottieCompositionFactory {
   public static LottieResult<LottieComposition> fromJsonStringSync(String json, @Nullable String cacheKey) {
 
 
-    ByteArrayInputStream stream = new ByteArrayInputStream(json.getBytes());
-    return fromJsonReaderSync(of(buffer(source(stream))), cacheKey);
+    byte[] bytes = json.getBytes();
+    ByteArrayInputStream stream = new ByteArrayInputStream(bytes);
+    return fromJsonReaderSyncInternal(of(buffer(source(stream))), cacheKey, true, bytes.length, false);
   }
 
   public static LottieTask<LottieComposition> fromJsonReader(final JsonReader reader, @Nullable final String cacheKey) {
@@ -349,10 +485,20 @@ public class LottieCompositionFactory {
 
   private static LottieResult<LottieComposition> fromJsonReaderSyncInternal(
       JsonReader reader, @Nullable String cacheKey, boolean close) {
+    return fromJsonReaderSyncInternal(reader, cacheKey, close, -1, false);
+  }
+
+  /**
+   * @param sourceSize the size of the json or binary encoding read by {@code reader}, or -1 if it is
+   *                   unknown, to estimate the memory of the composition in the cache.
+   */
+  private static LottieResult<LottieComposition> fromJsonReaderSyncInternal(
+      JsonReader reader, @Nullable String cacheKey, boolean close, long sourceSize, boolean binary) {
     try {
       LottieComposition composition = LottieCompositionMoshiParser.parse(reader);
       if (cacheKey != null) {
-        LottieCompositionCache.getInstance().put(cacheKey, composition);
+        LottieCompositionCache.getInstance().put(cacheKey, composition,
+            LottieCompositionCache.estimateSize(composition, sourceSize, binary));
       }
       return new LottieResult<>(composition);
     } catch (Exception e) {
@@ -7,6 +7,7 @@ import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.ColorFilter;
 import android.graphics.Matrix;
+import android.graphics.Paint;
 import android.graphics.PixelFormat;
 import android.graphics.Rect;
 import android.graphics.Typeface;
@@ -23,6 +24,7 @@ import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.airbnb.lottie.animation.LPaint;
 import com.airbnb.lottie.manager.FontAssetManager;
 import com.airbnb.lottie.manager.ImageAssetManager;
 import com.airbnb.lottie.model.KeyPath;
@@ -32,6 +34,7 @@ import com.airbnb.lottie.parser.LayerParser;
 import com.airbnb.lottie.utils.Logger;
 import com.airbnb.lottie.utils.LottieValueAnimator;
 import com.airbnb.lottie.utils.MiscUtils;
+import com.airbnb.lottie.utils.Utils;
 import com.airbnb.lottie.value.LottieFrameInfo;
 import com.airbnb.lottie.value.LottieValueCallback;
 import com.airbnb.lottie.value.SimpleLottieValueCallback;
@@ -96,6 +99,12 @@ public class LottieDrawable extends Drawable implements Drawable.Callback, Anima
   private boolean performanceTrackingEnabled;
   private boolean isApplyingOpacityToLayersEnabled;
   private boolean isExtraScaleEnabled = true;
+  @Nullable
+  private LottieFrameCache frameCache;
+  private final Canvas frameCacheCanvas = new Canvas();
+  private final Matrix frameCacheMatrix = new Matrix();
+  private final Rect frameCacheRect = new Rect();
+  private final Paint frameCachePaint = new LPaint(Paint.FILTER_BITMAP_FLAG);
   /**
    * True if the drawable has not been drawn since the last invalidateSelf.
    * We can do this to prevent things like bounds from getting recalculated
@@ -264,6 +273,7 @@ public class LottieDrawable extends Drawable implements Drawable.Callback, Anima
    */
   public void setApplyingOpacityToLayersEnabled(boolean isApplyingOpacityToLayersEnabled) {
     this.isApplyingOpacityToLayersEnabled = isApplyingOpacityToLayersEnabled;
+    invalidateFrameCache();
   }
 
   /**
@@ -275,10 +285,11 @@ public class LottieDrawable extends Drawable implements Drawable.Callback, Anima
    * <b>Attention:</b> Disable the extra scale mode can downgrade the performance and may lead to larger memory footprint. Please only disable this
    * mode when using animation with a reasonable dimension (smaller than screen size).
    *
-   * @see #drawWithNewAspectRatio(Canvas)
+   * @see #drawWithNewAspectRatio(Canvas, int)
    */
   public void disableExtraScaleModeInFitXY() {
     this.isExtraScaleEnabled = false;
+    invalidateFrameCache();
   }
 
   public boolean isApplyingOpacityToLayersEnabled() {
@@ -288,6 +299,7 @@ public class LottieDrawable extends Drawable implements Drawable.Callback, Anima
   private void buildCompositionLayer() {
     compositionLayer = new CompositionLayer(
         this, LayerParser.parse(composition), composition.getLayers(), composition);
+    invalidateFrameCache();
   }
 
   public void clearComposition() {
@@ -298,9 +310,53 @@ public class LottieDrawable extends Drawable implements Drawable.Callback, Anima
     compositionLayer = null;
     imageAssetManager = null;
     animator.clearComposition();
+    invalidateFrameCache();
     invalidateSelf();
   }
 
+  /**
+   * Caches rendered frames in bitmaps of up to {@code maxBytes} in total, at the resolution they
+   * are drawn at. Later loops of the animation then only draw the cached bitmaps instead of the
+   * layers, which is much cheaper for animations with mattes and masks.
+   * <p>
+   * Frames are cached at whole frame numbers, so the animation plays at most at the frame rate
+   * of the composition. Frames past the budget are rendered normally. Value callbacks that
+   * return different values for the same frame are not supported while the cache is enabled.
+   * <p>
+   * Pass 0 to disable the cache and free its memory.
+   *
+   * @see #clearFrameCache()
+   */
+  public void setFrameCacheMaxBytes(long maxBytes) {
+    if (maxBytes <= 0) {
+      clearFrameCache();
+      frameCache = null;
+    } else if (frameCache == null) {
+      frameCache = new LottieFrameCache(maxBytes);
+    } else {
+      frameCache.setMaxBytes(maxBytes);
+    }
+    invalidateSelf();
+  }
+
+  /**
+   * Frees the bitmaps of the frame cache, e.g. when the drawable is no longer shown. The cache
+   * stays enabled and is filled again by the next loops.
+   *
+   * @see #setFrameCacheMaxBytes(long)
+   */
+  public void clearFrameCache() {
+    if (frameCache != null) {
+      frameCache.release();
+    }
+  }
+
+  private void invalidateFrameCache() {
+    if (frameCache != null) {
+      frameCache.invalidate();
+    }
+  }
+
   /**
    * If you are experiencing a device specific crash that happens during drawing, you can set this to true
    * for those devices. If set to true, draw will be wrapped with a try/catch which will cause Lottie to
@@ -366,13 +422,57 @@ public class LottieDrawable extends Drawable implements Drawable.Callback, Anima
   }
 
   private void drawInternal(@NonNull Canvas canvas) {
+    if (frameCache != null && compositionLayer != null) {
+      drawWithFrameCache(canvas);
+    } else {
+      drawComposition(canvas, alpha);
+    }
+  }
+
+  private void drawComposition(@NonNull Canvas canvas, int alpha) {
     if (ImageView.ScaleType.FIT_XY == scaleType) {
-      drawWithNewAspectRatio(canvas);
+      drawWithNewAspectRatio(canvas, alpha);
     } else {
-      drawWithOriginalAspectRatio(canvas);
+      drawWithOriginalAspectRatio(canvas, alpha);
     }
   }
 
+  private void drawWithFrameCache(@NonNull Canvas canvas) {
+    Rect bounds = getBounds();
+    //noinspection deprecation
+    canvas.getMatrix(frameCacheMatrix);
+    // Render at the resolution of the canvas, but never below the bounds, which the drawing
+    // code assumes when it caps the scale to the canvas size.
+    float canvasScale = Math.max(1f, Utils.getScale(frameCacheMatrix));
+    int width = (int) Math.ceil(bounds.width() * canvasScale);
+    int height = (int) Math.ceil(bounds.height() * canvasScale);
+    int frame = getFrame();
+
+    Bitmap bitmap = frameCache.get(frame, width, height);
+    if (bitmap == null) {
+      bitmap = frameCache.obtain(frame);
+      if (bitmap == null) {
+        drawComposition(canvas, alpha);
+        return;
+      }
+      // Every later draw of this frame number shows this bitmap, so render the whole frame
+      // rather than the current position between two frames.
+      compositionLayer.setProgress(
+          (frame - composition.getStartFrame()) / composition.getDurationFrames());
+      frameCacheCanvas.setBitmap(bitmap);
+      int saveCount = frameCacheCanvas.save();
+      frameCacheCanvas.scale(width / (float) bounds.width(), height / (float) bounds.height());
+      drawComposition(frameCacheCanvas, 255);
+      frameCacheCanvas.restoreToCount(saveCount);
+      frameCacheCanvas.setBitmap(null);
+    }
+
+    // Like the layers, the frame is drawn at the origin rather than at the bounds' offset.
+    frameCacheRect.set(0, 0, bounds.width(), bounds.height());
+    frameCachePaint.setAlpha(alpha);
+    canvas.drawBitmap(bitmap, null, frameCacheRect, frameCachePaint);
+  }
+
 // <editor-fold desc="animator">
 
   @MainThread
@@ -859,6 +959,7 @@ public class LottieDrawable extends Drawable implements Drawable.Callback, Anima
     if (imageAssetManager != null) {
       imageAssetManager.setDelegate(assetDelegate);
     }
+    invalidateFrameCache();
   }
 
   /**
@@ -870,10 +971,12 @@ public class LottieDrawable extends Drawable implements Drawable.Callback, Anima
     if (fontAssetManager != null) {
       fontAssetManager.setDelegate(assetDelegate);
     }
+    invalidateFrameCache();
   }
 
   public void setTextDelegate(@SuppressWarnings("NullableProblems") TextDelegate textDelegate) {
     this.textDelegate = textDelegate;
+    invalidateFrameCache();
   }
 
   @Nullable
@@ -977,6 +1080,7 @@ public class LottieDrawable extends Drawable implements Drawable.Callback, Anima
       invalidate = !elements.isEmpty();
     }
     if (invalidate) {
+      invalidateFrameCache();
       invalidateSelf();
       if (property == LottieProperty.TIME_REMAP) {
         // Time remapping values are read in setProgress. In order for the new value
@@ -1018,6 +1122,7 @@ public class LottieDrawable extends Drawable implements Drawable.Callback, Anima
       return null;
     }
     Bitmap ret = bm.updateBitmap(id, bitmap);
+    invalidateFrameCache();
     invalidateSelf();
     return ret;
   }
@@ -1117,6 +1222,7 @@ public class LottieDrawable extends Drawable implements Drawable.Callback, Anima
 
   void setScaleType(ImageView.ScaleType scaleType) {
     this.scaleType = scaleType;
+    invalidateFrameCache();
   }
 
   /**
@@ -1129,7 +1235,7 @@ public class LottieDrawable extends Drawable implements Drawable.Callback, Anima
     return Math.min(maxScaleX, maxScaleY);
   }
 
-  private void drawWithNewAspectRatio(Canvas canvas) {
+  private void drawWithNewAspectRatio(Canvas canvas, int alpha) {
     if (compositionLayer == null) {
       return;
     }
@@ -1172,7 +1278,7 @@ public class LottieDrawable extends Drawable implements Drawable.Callback, Anima
     }
   }
 
-  private void drawWithOriginalAspectRatio(Canvas canvas) {
+  private void drawWithOriginalAspectRatio(Canvas canvas, int alpha) {
     if (compositionLayer == null) {
       return;
     }
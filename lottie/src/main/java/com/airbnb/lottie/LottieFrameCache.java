@@ -0,0 +1,95 @@
+package com.airbnb.lottie;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.util.SparseArray;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bitmaps of the frames a {@link LottieDrawable} already rendered, so that later loops of an
+ * animation only draw bitmaps instead of walking the layer tree with its mattes and masks.
+ * <p>
+ * Frames are cached at whole frame numbers and at a single size, until the size changes or the
+ * cache is invalidated. Once the memory budget is used up, the remaining frames are drawn
+ * normally rather than evicting cached ones, since evicting in a loop would miss every frame.
+ * Bitmaps of an invalidated cache are reused for the next frames of the same size.
+ */
+class LottieFrameCache {
+  private final SparseArray<Bitmap> frames = new SparseArray<>();
+  private final List<Bitmap> freeBitmaps = new ArrayList<>();
+  private long maxBytes;
+  private int width;
+  private int height;
+
+  LottieFrameCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  void setMaxBytes(long maxBytes) {
+    this.maxBytes = maxBytes;
+    if (getByteCount() > maxBytes) {
+      release();
+    }
+  }
+
+  /**
+   * Returns the bitmap of {@code frame} if it was cached at this size. Frames cached at another
+   * size are released.
+   */
+  @Nullable
+  Bitmap get(int frame, int width, int height) {
+    if (width != this.width || height != this.height) {
+      release();
+      this.width = width;
+      this.height = height;
+      return null;
+    }
+    return frames.get(frame);
+  }
+
+  /**
+   * Returns a transparent bitmap to render {@code frame} into, or null if it would not fit the
+   * budget.
+   */
+  @Nullable
+  Bitmap obtain(int frame) {
+    long frameBytes = (long) width * height * 4;
+    if (width <= 0 || height <= 0 || (frames.size() + 1) * frameBytes > maxBytes) {
+      return null;
+    }
+    Bitmap bitmap;
+    if (freeBitmaps.isEmpty()) {
+      bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    } else {
+      bitmap = freeBitmaps.remove(freeBitmaps.size() - 1);
+      bitmap.eraseColor(Color.TRANSPARENT);
+    }
+    frames.put(frame, bitmap);
+    return bitmap;
+  }
+
+  /** Drops all frames, e.g. after a value callback changed, but keeps their bitmaps for reuse. */
+  void invalidate() {
+    for (int i = 0; i < frames.size(); i++) {
+      freeBitmaps.add(frames.valueAt(i));
+    }
+    frames.clear();
+  }
+
+  /** Drops all frames and frees their memory. */
+  void release() {
+    invalidate();
+    for (int i = 0; i < freeBitmaps.size(); i++) {
+      freeBitmaps.get(i).recycle();
+    }
+    freeBitmaps.clear();
+  }
+
+  private long getByteCount() {
+    return (long) (frames.size() + freeBitmaps.size()) * width * height * 4;
+  }
+}
@@ -4,7 +4,6 @@ import androidx.annotation.FloatRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import com.airbnb.lottie.L;
 import com.airbnb.lottie.value.Keyframe;
 import com.airbnb.lottie.value.LottieValueCallback;
 
@@ -71,10 +70,8 @@ public abstract class BaseKeyframeAnimation<K, A> {
   }
 
   protected Keyframe<K> getCurrentKeyframe() {
-    L.beginSection("BaseKeyframeAnimation#getCurrentKeyframe");
-    final Keyframe<K> keyframe = keyframesWrapper.getCurrentKeyframe();
-    L.endSection("BaseKeyframeAnimation#getCurrentKeyframe");
-    return keyframe;
+    // Called several times per value on every frame, so it isn't traced.
+    return keyframesWrapper.getCurrentKeyframe();
   }
 
   /**
@@ -261,6 +258,9 @@ public abstract class BaseKeyframeAnimation<K, A> {
 
   private static final class KeyframesWrapperImpl<T> implements KeyframesWrapper<T> {
     private final List<? extends Keyframe<T>> keyframes;
+    // The start progress of each keyframe, in order, to binary search the current keyframe.
+    private final float[] startProgresses;
+    private int currentIndex;
     @NonNull
     private Keyframe<T> currentKeyframe;
     private Keyframe<T> cachedCurrentKeyframe = null;
@@ -268,7 +268,12 @@ public abstract class BaseKeyframeAnimation<K, A> {
 
     KeyframesWrapperImpl(List<? extends Keyframe<T>> keyframes) {
       this.keyframes = keyframes;
-      currentKeyframe = findKeyframe(0);
+      startProgresses = new float[keyframes.size()];
+      for (int i = 0; i < startProgresses.length; i++) {
+        startProgresses[i] = keyframes.get(i).getStartProgress();
+      }
+      currentIndex = findKeyframeIndex(0);
+      currentKeyframe = keyframes.get(currentIndex);
     }
 
     @Override
@@ -281,25 +286,43 @@ public abstract class BaseKeyframeAnimation<K, A> {
       if (currentKeyframe.containsProgress(progress)) {
         return !currentKeyframe.isStatic();
       }
-      currentKeyframe = findKeyframe(progress);
+      currentIndex = findKeyframeIndex(progress);
+      currentKeyframe = keyframes.get(currentIndex);
       return true;
     }
 
-    private Keyframe<T> findKeyframe(float progress) {
-      Keyframe<T> keyframe = keyframes.get(keyframes.size() - 1);
-      if (progress >= keyframe.getStartProgress()) {
-        return keyframe;
+    /**
+     * Returns the last keyframe if it has started, else the keyframe that contains progress, else
+     * the first keyframe.
+     */
+    private int findKeyframeIndex(float progress) {
+      int last = startProgresses.length - 1;
+      if (progress >= startProgresses[last]) {
+        return last;
+      }
+      // During playback, progress usually moves on to the next keyframe.
+      int next = currentIndex + 1;
+      if (next < last && keyframes.get(next).containsProgress(progress)) {
+        return next;
       }
-      for (int i = keyframes.size() - 2; i >= 1; i--) {
-        keyframe = keyframes.get(i);
-        if (currentKeyframe == keyframe) {
-          continue;
+      // The last of the middle keyframes that starts at or before progress.
+      int low = 1;
+      int high = last - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        if (startProgresses[mid] <= progress) {
+          low = mid + 1;
+        } else {
+          high = mid - 1;
         }
-        if (keyframe.containsProgress(progress)) {
-          return keyframe;
+      }
+      // It may end before progress if there are gaps or empty keyframes, so keep looking back.
+      for (int i = high; i >= 1; i--) {
+        if (keyframes.get(i).containsProgress(progress)) {
+          return i;
         }
       }
-      return keyframes.get(0);
+      return 0;
     }
 
     @Override
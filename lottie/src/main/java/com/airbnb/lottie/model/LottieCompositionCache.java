@@ -1,22 +1,42 @@
 package com.airbnb.lottie.model;
 
+import android.graphics.Bitmap;
+
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
 import androidx.collection.LruCache;
 
 import com.airbnb.lottie.LottieComposition;
+import com.airbnb.lottie.LottieImageAsset;
 
+/**
+ * In-memory cache of parsed compositions, bounded by their estimated size in bytes rather than by
+ * their number, so that a few large animations can't hold on to as much memory as many small ones.
+ */
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 public class LottieCompositionCache {
 
+  /** Size assumed for a composition whose source size is unknown. */
+  public static final int AVERAGE_COMPOSITION_SIZE = 400 * 1024;
+  public static final int DEFAULT_MAX_SIZE = 20 * AVERAGE_COMPOSITION_SIZE;
+
+  // The parsed keyframes, paths and boxed values take roughly twice the memory of the json they
+  // were parsed from, and the binary encoding is about 40% of the size of the json.
+  private static final int BYTES_PER_JSON_BYTE = 2;
+  private static final int BYTES_PER_BINARY_BYTE = 5;
+
   private static final LottieCompositionCache INSTANCE = new LottieCompositionCache();
 
   public static LottieCompositionCache getInstance() {
     return INSTANCE;
   }
 
-  private final LruCache<String, LottieComposition> cache = new LruCache<>(20);
+  private final LruCache<String, Entry> cache = new LruCache<String, Entry>(DEFAULT_MAX_SIZE) {
+    @Override protected int sizeOf(String key, Entry entry) {
+      return entry.size;
+    }
+  };
 
   @VisibleForTesting
   LottieCompositionCache() {
@@ -27,14 +47,23 @@ public class LottieCompositionCache {
     if (cacheKey == null) {
       return null;
     }
-    return cache.get(cacheKey);
+    Entry entry = cache.get(cacheKey);
+    return entry == null ? null : entry.composition;
   }
 
   public void put(@Nullable String cacheKey, LottieComposition composition) {
+    put(cacheKey, composition, estimateSize(composition, -1, false));
+  }
+
+  /**
+   * @param size the estimated size of the composition in bytes, see
+   *             {@link #estimateSize(LottieComposition, long, boolean)}.
+   */
+  public void put(@Nullable String cacheKey, LottieComposition composition, int size) {
     if (cacheKey == null) {
       return;
     }
-    cache.put(cacheKey, composition);
+    cache.put(cacheKey, new Entry(composition, size));
   }
 
   public void clear() {
@@ -42,10 +71,62 @@ public class LottieCompositionCache {
   }
 
   /**
-   * Set the maximum number of compositions to keep cached in memory.
+   * Set the maximum estimated size in bytes of the compositions to keep cached in memory.
    * This must be > 0.
    */
-  public void resize(int size) {
-    cache.resize(size);
+  public void resize(int maxSize) {
+    cache.resize(maxSize);
+  }
+
+  public int size() {
+    return cache.size();
+  }
+
+  public int maxSize() {
+    return cache.maxSize();
+  }
+
+  public int hitCount() {
+    return cache.hitCount();
+  }
+
+  public int missCount() {
+    return cache.missCount();
+  }
+
+  public int evictionCount() {
+    return cache.evictionCount();
+  }
+
+  /**
+   * Estimates the memory held by a composition from the size of its source and its bitmaps.
+   *
+   * @param sourceSize the size in bytes of the json or binary encoding it was parsed from, or -1
+   *                   if it is unknown.
+   */
+  public static int estimateSize(LottieComposition composition, long sourceSize, boolean binary) {
+    long size;
+    if (sourceSize < 0) {
+      size = AVERAGE_COMPOSITION_SIZE;
+    } else {
+      size = sourceSize * (binary ? BYTES_PER_BINARY_BYTE : BYTES_PER_JSON_BYTE);
+    }
+    for (LottieImageAsset asset : composition.getImages().values()) {
+      Bitmap bitmap = asset.getBitmap();
+      if (bitmap != null) {
+        size += bitmap.getByteCount();
+      }
+    }
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
+
+  private static final class Entry {
+    final LottieComposition composition;
+    final int size;
+
+    Entry(LottieComposition composition, int size) {
+      this.composition = composition;
+      this.size = Math.max(size, 1);
+    }
   }
 }
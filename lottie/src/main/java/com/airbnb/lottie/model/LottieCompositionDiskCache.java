@@ -0,0 +1,225 @@
+package com.airbnb.lottie.model;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+import androidx.annotation.WorkerThread;
+
+import com.airbnb.lottie.utils.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import okio.BufferedSink;
+import okio.Okio;
+
+import static com.airbnb.lottie.utils.Utils.closeQuietly;
+
+/**
+ * On-disk cache of compositions in the binary encoding written by
+ * {@link com.airbnb.lottie.parser.moshi.JsonBinaryConverter}, so that a composition bundled as json
+ * is only tokenized once per version of the app rather than once per process.
+ * <p>
+ * Files are named after the cache key and a hash of the resources of the app, since the same
+ * resource id can point to another animation after an update of the app, the system image or a
+ * resource overlay. Files of other versions are deleted on first use. They are stored in the
+ * code cache, which the system also clears when the app or the OS is updated.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public class LottieCompositionDiskCache {
+
+  private static final String DIRECTORY = "lottie_compositions";
+
+  @Nullable private static LottieCompositionDiskCache instance;
+
+  public static synchronized LottieCompositionDiskCache getInstance(Context context) {
+    if (instance == null) {
+      instance = new LottieCompositionDiskCache(context.getApplicationContext());
+    }
+    return instance;
+  }
+
+  /** Returns the instance if it was already created, to read its statistics. */
+  @Nullable
+  public static synchronized LottieCompositionDiskCache peekInstance() {
+    return instance;
+  }
+
+  private final Context appContext;
+  @Nullable private File directory;
+  private String resourcesVersion;
+  private int hitCount;
+  private int missCount;
+
+  private LottieCompositionDiskCache(Context appContext) {
+    this.appContext = appContext;
+  }
+
+  /**
+   * Memory-maps the cached binary encoding of {@code cacheKey}, or returns null if there is none.
+   */
+  @Nullable
+  @WorkerThread
+  public ByteBuffer get(String cacheKey) {
+    File file = getFile(cacheKey);
+    if (file == null || !file.isFile()) {
+      countMiss();
+      return null;
+    }
+    FileInputStream stream = null;
+    try {
+      stream = new FileInputStream(file);
+      ByteBuffer buffer = stream.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+      countHit();
+      return buffer;
+    } catch (IOException e) {
+      Logger.warning("Unable to map cached composition " + file, e);
+      countMiss();
+      return null;
+    } finally {
+      closeQuietly(stream);
+    }
+  }
+
+  /**
+   * Writes the binary encoding of {@code cacheKey}. The file is written under a temporary name
+   * first so that concurrent readers never see a partial file.
+   */
+  @WorkerThread
+  public void put(String cacheKey, byte[] binary) {
+    File file = getFile(cacheKey);
+    if (file == null) {
+      return;
+    }
+    File tempFile = null;
+    BufferedSink sink = null;
+    try {
+      tempFile = File.createTempFile(file.getName(), ".temp", file.getParentFile());
+      sink = Okio.buffer(Okio.sink(tempFile));
+      sink.write(binary);
+      sink.close();
+      sink = null;
+      if (!tempFile.renameTo(file)) {
+        Logger.warning("Unable to rename cache file " + tempFile + " to " + file + ".");
+      }
+    } catch (IOException e) {
+      Logger.warning("Unable to cache composition " + cacheKey, e);
+    } finally {
+      closeQuietly(sink);
+      if (tempFile != null && tempFile.exists() && !tempFile.delete()) {
+        Logger.warning("Unable to delete " + tempFile);
+      }
+    }
+  }
+
+  /** Deletes the cached encoding of {@code cacheKey}, e.g. because it failed to parse. */
+  public void remove(String cacheKey) {
+    File file = getFile(cacheKey);
+    if (file != null && file.exists() && !file.delete()) {
+      Logger.warning("Unable to delete " + file);
+    }
+  }
+
+  public synchronized int hitCount() {
+    return hitCount;
+  }
+
+  public synchronized int missCount() {
+    return missCount;
+  }
+
+  private synchronized void countHit() {
+    hitCount++;
+  }
+
+  private synchronized void countMiss() {
+    missCount++;
+  }
+
+  @Nullable
+  private synchronized File getFile(String cacheKey) {
+    if (directory == null) {
+      File parent = Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+          ? appContext.getCodeCacheDir() : appContext.getCacheDir();
+      directory = new File(parent, DIRECTORY);
+      resourcesVersion = resourcesVersion();
+      if (!directory.isDirectory() && !directory.mkdirs()) {
+        Logger.warning("Unable to create " + directory);
+      }
+      deleteOtherVersions();
+    }
+    if (!directory.isDirectory()) {
+      return null;
+    }
+    return new File(directory, cacheKey.replaceAll("\\W+", "") + "_" + resourcesVersion);
+  }
+
+  private void deleteOtherVersions() {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    String suffix = "_" + resourcesVersion;
+    for (File file : files) {
+      if (!file.getName().endsWith(suffix) && !file.delete()) {
+        Logger.warning("Unable to delete " + file);
+      }
+    }
+  }
+
+  /**
+   * A hash of what the app's resources are loaded from: the build, the version of the app and
+   * the paths and modification times of its apk and of the overlays applied to it. Apps in the
+   * system image keep their version code and install time across OTAs, hence the build.
+   */
+  @SuppressWarnings("deprecation")
+  private String resourcesVersion() {
+    StringBuilder version = new StringBuilder(Build.FINGERPRINT);
+    ApplicationInfo appInfo = appContext.getApplicationInfo();
+    appendFile(version, appInfo.sourceDir);
+    if (appInfo.resourceDirs != null) {
+      for (String resourceDir : appInfo.resourceDirs) {
+        appendFile(version, resourceDir);
+      }
+    }
+    try {
+      PackageInfo info = appContext.getPackageManager()
+          .getPackageInfo(appContext.getPackageName(), 0);
+      long versionCode = Build.VERSION.SDK_INT >= Build.VERSION_CODES.P
+          ? info.getLongVersionCode() : info.versionCode;
+      version.append('|').append(versionCode).append('|').append(info.lastUpdateTime);
+    } catch (PackageManager.NameNotFoundException e) {
+      Logger.warning("Unable to get the version of " + appContext.getPackageName(), e);
+    }
+
+    byte[] hash;
+    try {
+      hash = MessageDigest.getInstance("SHA-256")
+          .digest(version.toString().getBytes(Charset.forName("UTF-8")));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    StringBuilder hex = new StringBuilder();
+    for (int i = 0; i < 8; i++) {
+      hex.append(String.format("%02x", hash[i]));
+    }
+    return hex.toString();
+  }
+
+  private static void appendFile(StringBuilder version, String path) {
+    if (path != null) {
+      version.append('|').append(path).append('|').append(new File(path).lastModified());
+    }
+  }
+}
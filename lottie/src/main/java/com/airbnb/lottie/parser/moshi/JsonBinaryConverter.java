@@ -0,0 +1,109 @@
+package com.airbnb.lottie.parser.moshi;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ByteString;
+
+import static com.airbnb.lottie.parser.moshi.JsonBinaryReader.*;
+
+/**
+ * Converts JSON documents, e.g. Lottie animations, to the binary encoding read by
+ * {@link JsonReader#of(java.nio.ByteBuffer)}.
+ */
+public final class JsonBinaryConverter {
+  private JsonBinaryConverter() {
+  }
+
+  /** Reads the JSON document from {@code json} and writes its binary encoding to {@code sink}. */
+  public static void convert(JsonReader json, BufferedSink sink) throws IOException {
+    Map<String, Integer> stringIndices = new LinkedHashMap<>();
+    Buffer tokens = new Buffer();
+    JsonReader.Token token;
+    while ((token = json.peek()) != JsonReader.Token.END_DOCUMENT) {
+      switch (token) {
+        case BEGIN_ARRAY:
+          json.beginArray();
+          tokens.writeByte(TAG_BEGIN_ARRAY);
+          break;
+        case END_ARRAY:
+          json.endArray();
+          tokens.writeByte(TAG_END_ARRAY);
+          break;
+        case BEGIN_OBJECT:
+          json.beginObject();
+          tokens.writeByte(TAG_BEGIN_OBJECT);
+          break;
+        case END_OBJECT:
+          json.endObject();
+          tokens.writeByte(TAG_END_OBJECT);
+          break;
+        case NAME:
+          tokens.writeByte(TAG_NAME);
+          writeVarint(tokens, indexOf(stringIndices, json.nextName()));
+          break;
+        case STRING:
+          tokens.writeByte(TAG_STRING);
+          writeVarint(tokens, indexOf(stringIndices, json.nextString()));
+          break;
+        case NUMBER:
+          writeNumber(tokens, json.nextDouble());
+          break;
+        case BOOLEAN:
+          tokens.writeByte(json.nextBoolean() ? TAG_TRUE : TAG_FALSE);
+          break;
+        case NULL:
+          json.skipValue();
+          tokens.writeByte(TAG_NULL);
+          break;
+        default:
+          throw new AssertionError(token);
+      }
+    }
+
+    sink.write(MAGIC);
+    writeVarint(sink, stringIndices.size());
+    for (String string : stringIndices.keySet()) {
+      ByteString bytes = ByteString.encodeUtf8(string);
+      writeVarint(sink, bytes.size());
+      sink.write(bytes);
+    }
+    sink.writeAll(tokens);
+    sink.flush();
+  }
+
+  private static int indexOf(Map<String, Integer> stringIndices, String string) {
+    Integer index = stringIndices.get(string);
+    if (index == null) {
+      index = stringIndices.size();
+      stringIndices.put(string, index);
+    }
+    return index;
+  }
+
+  private static void writeNumber(BufferedSink sink, double value) throws IOException {
+    boolean negativeZero = value == 0 && 1 / value < 0;
+    if ((int) value == value && !negativeZero) {
+      int intValue = (int) value;
+      sink.writeByte(TAG_INT);
+      writeVarint(sink, (intValue << 1) ^ (intValue >> 31));
+    } else if ((float) value == value || Double.isNaN(value)) {
+      sink.writeByte(TAG_FLOAT);
+      sink.writeInt(Float.floatToIntBits((float) value));
+    } else {
+      sink.writeByte(TAG_DOUBLE);
+      sink.writeLong(Double.doubleToLongBits(value));
+    }
+  }
+
+  private static void writeVarint(BufferedSink sink, int value) throws IOException {
+    while ((value & ~0x7f) != 0) {
+      sink.writeByte((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    sink.writeByte(value);
+  }
+}
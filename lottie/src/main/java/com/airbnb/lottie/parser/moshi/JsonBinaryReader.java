@@ -0,0 +1,457 @@
+package com.airbnb.lottie.parser.moshi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import okio.ByteString;
+
+/**
+ * Reads the binary encoding of a JSON document written by {@link JsonBinaryConverter}.
+ *
+ * <p>The encoding starts with {@link #MAGIC}, followed by a table of all distinct names and
+ * strings and then by the tokens of the document. Each token is one tag byte, followed by a
+ * string table index for names and strings and by the value for numbers. Indices and integers
+ * are stored as unsigned LEB128 varints, integers zigzag encoded. Numbers that are not integers
+ * are stored as a float if that is exact and as a double otherwise.
+ *
+ * <p>Nothing is lexed and no number is parsed from text, names are only decoded once per
+ * document, and {@link #selectName} resolves each name once per {@link Options}. The buffer may
+ * be memory-mapped; strings are decoded when they are first read.
+ */
+final class JsonBinaryReader extends JsonReader {
+  /** Leading bytes of the encoding. A NUL byte cannot start a JSON document or a zip file. */
+  static final ByteString MAGIC = ByteString.of((byte) 0, (byte) 'L', (byte) 'B', (byte) 1);
+
+  static final byte TAG_BEGIN_ARRAY = 1;
+  static final byte TAG_END_ARRAY = 2;
+  static final byte TAG_BEGIN_OBJECT = 3;
+  static final byte TAG_END_OBJECT = 4;
+  static final byte TAG_NAME = 5;
+  static final byte TAG_STRING = 6;
+  static final byte TAG_INT = 7;
+  static final byte TAG_FLOAT = 8;
+  static final byte TAG_DOUBLE = 9;
+  static final byte TAG_TRUE = 10;
+  static final byte TAG_FALSE = 11;
+  static final byte TAG_NULL = 12;
+
+  /** Marks a name of the string table that was not yet looked up in an {@link Options}. */
+  private static final int UNRESOLVED = -2;
+
+  private final ByteBuffer buffer;
+  private int pos;
+  private final int limit;
+
+  private final int[] stringOffsets;
+  private final int[] stringLengths;
+  private final String[] strings;
+  /** Index of each string table entry in an {@link Options}, or -1 if it is not one of them. */
+  private final Map<Options, int[]> selections = new HashMap<>();
+
+  JsonBinaryReader(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    pos = buffer.position();
+    limit = buffer.limit();
+    if (limit - pos < MAGIC.size()) {
+      throw new JsonEncodingException("Missing binary header");
+    }
+    for (int i = 0; i < MAGIC.size(); i++) {
+      if (buffer.get(pos++) != MAGIC.getByte(i)) {
+        throw new JsonEncodingException("Unsupported binary header");
+      }
+    }
+
+    int count = readVarint();
+    stringOffsets = new int[count];
+    stringLengths = new int[count];
+    strings = new String[count];
+    for (int i = 0; i < count; i++) {
+      stringLengths[i] = readVarint();
+      stringOffsets[i] = pos;
+      pos += stringLengths[i];
+    }
+    if (pos > limit) {
+      throw new JsonEncodingException("Truncated string table");
+    }
+    pushScope(JsonScope.EMPTY_DOCUMENT);
+  }
+
+  /** Returns true if {@code bytes} starts with {@link #MAGIC}. */
+  static boolean hasMagic(ByteBuffer bytes) {
+    if (bytes.remaining() < MAGIC.size()) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.size(); i++) {
+      if (bytes.get(bytes.position() + i) != MAGIC.getByte(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override public void beginArray() throws IOException {
+    expect(TAG_BEGIN_ARRAY, Token.BEGIN_ARRAY);
+    pushScope(JsonScope.EMPTY_ARRAY);
+    pathIndices[stackSize - 1] = 0;
+  }
+
+  @Override public void endArray() throws IOException {
+    expect(TAG_END_ARRAY, Token.END_ARRAY);
+    stackSize--;
+    pathIndices[stackSize - 1]++;
+  }
+
+  @Override public void beginObject() throws IOException {
+    expect(TAG_BEGIN_OBJECT, Token.BEGIN_OBJECT);
+    pushScope(JsonScope.EMPTY_OBJECT);
+  }
+
+  @Override public void endObject() throws IOException {
+    expect(TAG_END_OBJECT, Token.END_OBJECT);
+    stackSize--;
+    pathNames[stackSize] = null; // Free the last path name so that it can be garbage collected!
+    pathIndices[stackSize - 1]++;
+  }
+
+  @Override public boolean hasNext() throws IOException {
+    if (pos >= limit) {
+      return false;
+    }
+    byte tag = buffer.get(pos);
+    return tag != TAG_END_OBJECT && tag != TAG_END_ARRAY;
+  }
+
+  @Override public Token peek() throws IOException {
+    if (pos >= limit) {
+      return Token.END_DOCUMENT;
+    }
+    switch (buffer.get(pos)) {
+      case TAG_BEGIN_ARRAY:
+        return Token.BEGIN_ARRAY;
+      case TAG_END_ARRAY:
+        return Token.END_ARRAY;
+      case TAG_BEGIN_OBJECT:
+        return Token.BEGIN_OBJECT;
+      case TAG_END_OBJECT:
+        return Token.END_OBJECT;
+      case TAG_NAME:
+        return Token.NAME;
+      case TAG_STRING:
+        return Token.STRING;
+      case TAG_INT:
+      case TAG_FLOAT:
+      case TAG_DOUBLE:
+        return Token.NUMBER;
+      case TAG_TRUE:
+      case TAG_FALSE:
+        return Token.BOOLEAN;
+      case TAG_NULL:
+        return Token.NULL;
+      default:
+        throw syntaxError("Unknown tag " + buffer.get(pos));
+    }
+  }
+
+  @Override public String nextName() throws IOException {
+    expect(TAG_NAME, Token.NAME);
+    String result = string(readVarint());
+    pathNames[stackSize - 1] = result;
+    return result;
+  }
+
+  @Override public int selectName(Options options) throws IOException {
+    if (pos >= limit || buffer.get(pos) != TAG_NAME) {
+      return -1;
+    }
+    int start = pos;
+    pos++;
+    int index = readVarint();
+    if (index < 0 || index >= strings.length) {
+      throw syntaxError("Unknown string " + index);
+    }
+
+    int[] selection = selections.get(options);
+    if (selection == null) {
+      selection = new int[strings.length];
+      Arrays.fill(selection, UNRESOLVED);
+      selections.put(options, selection);
+    }
+    int result = selection[index];
+    if (result == UNRESOLVED) {
+      result = -1;
+      String name = string(index);
+      for (int i = 0, size = options.strings.length; i < size; i++) {
+        if (name.equals(options.strings[i])) {
+          result = i;
+          break;
+        }
+      }
+      selection[index] = result;
+    }
+
+    if (result == -1) {
+      // Leave the name to be read or skipped by the caller.
+      pos = start;
+    } else {
+      pathNames[stackSize - 1] = options.strings[result];
+    }
+    return result;
+  }
+
+  @Override public void skipName() throws IOException {
+    if (failOnUnknown) {
+      throw new JsonDataException("Cannot skip unexpected " + peek() + " at " + getPath());
+    }
+    expect(TAG_NAME, Token.NAME);
+    readVarint();
+    pathNames[stackSize - 1] = "null";
+  }
+
+  @Override public String nextString() throws IOException {
+    String result;
+    switch (peekTag()) {
+      case TAG_STRING:
+        pos++;
+        result = string(readVarint());
+        break;
+      case TAG_INT:
+        pos++;
+        result = Integer.toString(readZigzag());
+        break;
+      case TAG_FLOAT:
+      case TAG_DOUBLE:
+        result = Double.toString(readDouble());
+        break;
+      default:
+        throw new JsonDataException("Expected a string but was " + peek() + " at path "
+            + getPath());
+    }
+    pathIndices[stackSize - 1]++;
+    return result;
+  }
+
+  @Override public boolean nextBoolean() throws IOException {
+    byte tag = peekTag();
+    if (tag != TAG_TRUE && tag != TAG_FALSE) {
+      throw new JsonDataException("Expected a boolean but was " + peek() + " at path "
+          + getPath());
+    }
+    pos++;
+    pathIndices[stackSize - 1]++;
+    return tag == TAG_TRUE;
+  }
+
+  @Override public double nextDouble() throws IOException {
+    int start = pos;
+    double result;
+    switch (peekTag()) {
+      case TAG_INT:
+        pos++;
+        result = readZigzag();
+        break;
+      case TAG_FLOAT:
+      case TAG_DOUBLE:
+        result = readDouble();
+        break;
+      case TAG_STRING:
+        pos++;
+        String string = string(readVarint());
+        try {
+          result = Double.parseDouble(string);
+        } catch (NumberFormatException e) {
+          pos = start;
+          throw new JsonDataException("Expected a double but was " + string
+              + " at path " + getPath());
+        }
+        if (!lenient && (Double.isNaN(result) || Double.isInfinite(result))) {
+          pos = start;
+          throw new JsonEncodingException("JSON forbids NaN and infinities: " + result
+              + " at path " + getPath());
+        }
+        break;
+      default:
+        throw new JsonDataException("Expected a double but was " + peek() + " at path "
+            + getPath());
+    }
+    pathIndices[stackSize - 1]++;
+    return result;
+  }
+
+  @Override public int nextInt() throws IOException {
+    byte tag = peekTag();
+    if (tag == TAG_INT) {
+      pos++;
+      int result = readZigzag();
+      pathIndices[stackSize - 1]++;
+      return result;
+    }
+
+    int start = pos;
+    String value;
+    double asDouble;
+    if (tag == TAG_FLOAT || tag == TAG_DOUBLE) {
+      asDouble = readDouble();
+      value = Double.toString(asDouble);
+    } else if (tag == TAG_STRING) {
+      pos++;
+      value = string(readVarint());
+      try {
+        int result = Integer.parseInt(value);
+        pathIndices[stackSize - 1]++;
+        return result;
+      } catch (NumberFormatException ignored) {
+        // Fall back to parse as a double below.
+      }
+      try {
+        asDouble = Double.parseDouble(value);
+      } catch (NumberFormatException e) {
+        pos = start;
+        throw new JsonDataException("Expected an int but was " + value
+            + " at path " + getPath());
+      }
+    } else {
+      throw new JsonDataException("Expected an int but was " + peek() + " at path " + getPath());
+    }
+
+    int result = (int) asDouble;
+    if (result != asDouble) { // Make sure no precision was lost casting to 'int'.
+      pos = start;
+      throw new JsonDataException("Expected an int but was " + value
+          + " at path " + getPath());
+    }
+    pathIndices[stackSize - 1]++;
+    return result;
+  }
+
+  @Override public void close() throws IOException {
+    pos = limit;
+    scopes[0] = JsonScope.CLOSED;
+    stackSize = 1;
+  }
+
+  @Override public void skipValue() throws IOException {
+    if (failOnUnknown) {
+      throw new JsonDataException("Cannot skip unexpected " + peek() + " at " + getPath());
+    }
+    int count = 0;
+    do {
+      byte tag = peekTag();
+      pos++;
+      switch (tag) {
+        case TAG_BEGIN_ARRAY:
+          pushScope(JsonScope.EMPTY_ARRAY);
+          count++;
+          break;
+        case TAG_BEGIN_OBJECT:
+          pushScope(JsonScope.EMPTY_OBJECT);
+          count++;
+          break;
+        case TAG_END_ARRAY:
+        case TAG_END_OBJECT:
+          count--;
+          if (count < 0) {
+            pos--;
+            throw new JsonDataException(
+                "Expected a value but was " + peek() + " at path " + getPath());
+          }
+          stackSize--;
+          break;
+        case TAG_NAME:
+        case TAG_STRING:
+        case TAG_INT:
+          readVarint();
+          break;
+        case TAG_FLOAT:
+          pos += 4;
+          break;
+        case TAG_DOUBLE:
+          pos += 8;
+          break;
+        default:
+          break;
+      }
+    } while (count != 0);
+
+    pathIndices[stackSize - 1]++;
+    pathNames[stackSize - 1] = "null";
+  }
+
+  @Override public String toString() {
+    return "JsonBinaryReader(" + buffer + ")";
+  }
+
+  private byte peekTag() throws IOException {
+    if (pos >= limit) {
+      throw new JsonDataException("Expected a value but was END_DOCUMENT at path " + getPath());
+    }
+    return buffer.get(pos);
+  }
+
+  private void expect(byte tag, Token token) throws IOException {
+    if (pos >= limit || buffer.get(pos) != tag) {
+      throw new JsonDataException("Expected " + token + " but was " + peek()
+          + " at path " + getPath());
+    }
+    pos++;
+  }
+
+  /** Reads the value of a float or double token, including its tag. */
+  private double readDouble() {
+    double result;
+    if (buffer.get(pos++) == TAG_FLOAT) {
+      result = buffer.getFloat(pos);
+      pos += 4;
+    } else {
+      result = buffer.getDouble(pos);
+      pos += 8;
+    }
+    return result;
+  }
+
+  private int readVarint() throws IOException {
+    int result = 0;
+    int shift = 0;
+    byte b;
+    do {
+      if (pos >= limit || shift > 28) {
+        throw syntaxError("Malformed varint");
+      }
+      b = buffer.get(pos++);
+      result |= (b & 0x7f) << shift;
+      shift += 7;
+    } while (b < 0);
+    return result;
+  }
+
+  private int readZigzag() throws IOException {
+    int value = readVarint();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private String string(int index) throws IOException {
+    if (index < 0 || index >= strings.length) {
+      throw syntaxError("Unknown string " + index);
+    }
+    String result = strings[index];
+    if (result == null) {
+      int offset = stringOffsets[index];
+      int length = stringLengths[index];
+      if (buffer.hasArray()) {
+        result = new String(buffer.array(), buffer.arrayOffset() + offset, length,
+            StandardCharsets.UTF_8);
+      } else {
+        byte[] bytes = new byte[length];
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset);
+        duplicate.get(bytes);
+        result = new String(bytes, StandardCharsets.UTF_8);
+      }
+      strings[index] = result;
+    }
+    return result;
+  }
+}
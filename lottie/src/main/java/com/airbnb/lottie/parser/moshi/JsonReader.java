@@ -17,6 +17,7 @@ package com.airbnb.lottie.parser.moshi;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -222,6 +223,27 @@ public abstract class JsonReader implements Closeable {
     return new JsonUtf8Reader(source);
   }
 
+  /**
+   * Returns a new instance that reads the binary encoding written by {@link JsonBinaryConverter}
+   * from {@code buffer}, which may be memory-mapped.
+   */
+  public static JsonReader of(ByteBuffer buffer) throws IOException {
+    return new JsonBinaryReader(buffer);
+  }
+
+  /** Returns true if {@code buffer} holds the binary encoding rather than JSON. */
+  public static boolean isBinary(ByteBuffer buffer) {
+    return JsonBinaryReader.hasMagic(buffer);
+  }
+
+  /**
+   * Returns true if {@code source} starts with the binary encoding rather than JSON. This does not
+   * consume any bytes of {@code source}.
+   */
+  public static boolean isBinary(BufferedSource source) throws IOException {
+    return source.rangeEquals(0, JsonBinaryReader.MAGIC);
+  }
+
   // Package-private to control subclasses.
   JsonReader() {
     scopes = new int[32];